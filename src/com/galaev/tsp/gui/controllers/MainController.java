@@ -3,9 +3,13 @@ package com.galaev.tsp.gui.controllers;
 import com.galaev.tsp.gui.Message;
 import com.galaev.tsp.gui.Prompt;
 import com.galaev.tsp.model.Cell;
+import com.galaev.tsp.model.EuclideanInstance;
 import com.galaev.tsp.model.Matrix;
 import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+import com.galaev.tsp.solver.LiveRoute;
 import com.galaev.tsp.solver.SolverService;
+import com.galaev.tsp.solver.WarmStart;
 import javafx.animation.FadeTransition;
 import javafx.animation.FadeTransitionBuilder;
 import javafx.animation.FillTransition;
@@ -79,6 +83,7 @@ import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -86,6 +91,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.ResourceBundle;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Class represents a controller (in MVC model) for
@@ -97,6 +103,8 @@ public class MainController implements Initializable {
 
     /** Infinity sign for table */
     private static final String INFINITY_SIGN = "\u221e";
+    /** Style class for required transitions in table */
+    private static final String REQUIRED_STYLE = "required";
     /** Animation speed delay */
     private static final double ANIMATION_DELAY = 0.5;
 
@@ -125,6 +133,7 @@ public class MainController implements Initializable {
     @FXML private MenuItem randomMenuItem;
     @FXML private MenuItem maxRandomMenuItem;
     @FXML private CheckMenuItem symmetricMode;
+    @FXML private CheckMenuItem incrementalMode;
     @FXML private RadioMenuItem tableMode;
     @FXML private RadioMenuItem canvasMode;
     @FXML private Button newButton;
@@ -137,6 +146,8 @@ public class MainController implements Initializable {
     /* Internationalized strings */
     private String blockTransition;
     private String allowTransition;
+    private String requireTransition;
+    private String releaseTransition;
     private String rename;
     private String renameTitle;
     private String renameMessage;
@@ -148,9 +159,12 @@ public class MainController implements Initializable {
     private String infoNumberMessage;
     private String infoRandomMessage;
     private String infoSolutionMessage;
+    private String infoHeuristicMessage;
     private String errorTitle;
     private String errorFileMessage;
     private String routeShortest;
+    private String routeGap;
+    private String routeFound;
     private String routeNode;
     private String routeCost;
 
@@ -162,6 +176,28 @@ public class MainController implements Initializable {
     private SolverService service;
     /** The Matrix */
     private Matrix matrix;
+    /** Previous solve of the table, so it is solved again quickly after edits */
+    private final WarmStart warmStart = new WarmStart();
+    /** Previous solve of the canvas, that tells, whether its route is the shortest one */
+    private final WarmStart canvasSolve = new WarmStart();
+    /** Whether the latest route on canvas is going to be drawn */
+    private final AtomicBoolean drawing = new AtomicBoolean();
+    /** Route, that is kept on canvas in background, while nodes are added and dragged */
+    private final LiveRoute liveRoute = new LiveRoute(new LiveRoute.Listener() {
+        @Override
+        public void changed(Route route) {
+            // Routes, that come before the drawing, are skipped
+            if (drawing.compareAndSet(false, true)) {
+                Platform.runLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        drawing.set(false);
+                        showIncrementalRoute();
+                    }
+                });
+            }
+        }
+    });
     /** Node names*/
     private Map<Integer, StringProperty> names;
     /** Maximum value for random table fill */
@@ -223,7 +259,7 @@ public class MainController implements Initializable {
             }
             attachHeadings(number + 1);
             for (Cell cell : matrix) {
-                attachCell(cell);
+                attachCell(cell, matrix.isRequired(cell.getFrom(), cell.getTo()));
             }
             // Set flags
             saveMenuItem.setDisable(false);
@@ -250,7 +286,7 @@ public class MainController implements Initializable {
         if (prompt.show()) { // If got number
             try {
                 number = Integer.parseInt(Prompt.result);
-                if (number < 3 || number > 20) {
+                if (number < 3) {
                     showMessage(infoTitle, infoNumberMessage);
                     return;
                 }
@@ -274,7 +310,7 @@ public class MainController implements Initializable {
         for (int i = 0; i < number; ++ i) {
             for (int j = 0; j < number; ++ j) {
                 Cell cell = new Cell(i == j ? -1 : 0, i, j);
-                attachCell(cell);
+                attachCell(cell, false);
             }
         }
         // Set flags
@@ -303,6 +339,9 @@ public class MainController implements Initializable {
                 return;
             }
             matrix = new Matrix(cells); // Create matrix
+            for (Transition transition : extractRequired()) {
+                matrix.requireCell(transition.getFrom(), transition.getTo());
+            }
             String fileName = file.getName(); // Get extension
             switch (fileName.substring(fileName.lastIndexOf("."))) {
                 case ".txt": // Save as text
@@ -417,6 +456,7 @@ public class MainController implements Initializable {
             table.getChildren().clear();
             names = new HashMap<>();
             nodeCounter = 0;
+            liveRoute.clear();
             // Set selections and disable / enable buttons
             tabPane.getSelectionModel().select(canvasTab);
             tableTab.setDisable(true);
@@ -438,6 +478,27 @@ public class MainController implements Initializable {
         canvas.getChildren().clear();
         nodeCounter = 0;
         names.clear();
+        liveRoute.clear();
+    }
+
+    /**
+     * Turns on or off the route, that is kept
+     * on canvas, while nodes are added.
+     * The route is built of the nodes on canvas.
+     *
+     * @param actionEvent click event
+     */
+    @FXML private void useIncrementalRoute(ActionEvent actionEvent) {
+        liveRoute.clear();
+        if (incrementalMode.isSelected()) {
+            for (Node node : canvas.getChildren()) {
+                if (node instanceof Circle) {
+                    Circle circle = (Circle) node;
+                    liveRoute.insert(circle.getCenterX(), circle.getCenterY());
+                }
+            }
+        }
+        showIncrementalRoute();
     }
 
     /**
@@ -468,6 +529,9 @@ public class MainController implements Initializable {
             Text text = createText(nodeCounter, fontSize, 0, circle);
             ++ nodeCounter;
             canvas.getChildren().addAll(circle, text);
+            if (incrementalMode.isSelected()) {
+                liveRoute.insert(x, y);
+            }
         }
     }
 
@@ -555,16 +619,18 @@ public class MainController implements Initializable {
      * Attaches a cell to the grid pane.
      * On the grid pane cell represented as
      * a text field. Besides, it has context menu
-     * for blocking or allowing the transition.
+     * for blocking or allowing the transition
+     * and for requiring or releasing it.
      *
      * @param cell cell to attach
+     * @param required whether the transition is required
      * @see com.galaev.tsp.model.Cell
      */
-    private void attachCell(Cell cell) {
+    private void attachCell(Cell cell, boolean required) {
         // Cell parameters
         int from = cell.getFrom();
         int to = cell.getTo();
-        int value = cell.getValue();
+        long value = cell.getValue();
         // Create a cell for the grid pane:
         final TextField textCell = TextFieldBuilder.create()
                 .text(value == -1 ? INFINITY_SIGN : String.valueOf(value))
@@ -593,26 +659,48 @@ public class MainController implements Initializable {
         if (from != to) {
             // Context menu item for blocking or allowing transition
             final MenuItem menuItem = new MenuItem(blockTransition);
+            // Context menu item for requiring or releasing transition
+            final MenuItem requireItem = new MenuItem(required ? releaseTransition : requireTransition);
+            if (required) {
+                textCell.getStyleClass().add(REQUIRED_STYLE);
+                menuItem.setDisable(true);
+            }
             menuItem.setOnAction(new EventHandler<ActionEvent>() {
                 @FXML private boolean blocked = false;
-                int value;
+                long value;
                 @Override
                 public void handle(ActionEvent actionEvent) {
                     if (blocked) {
                         textCell.setText(String.valueOf(value));
                         menuItem.setText(blockTransition);
+                        requireItem.setDisable(false);
                         blocked = false;
                     } else {
-                        value = Integer.parseInt(textCell.getText());
+                        value = Long.parseLong(textCell.getText());
                         textCell.setText(INFINITY_SIGN);
                         menuItem.setText(allowTransition);
+                        requireItem.setDisable(true);
                         blocked = true;
                     }
                 }
             });
+            requireItem.setOnAction(new EventHandler<ActionEvent>() {
+                @Override
+                public void handle(ActionEvent actionEvent) {
+                    if (textCell.getStyleClass().contains(REQUIRED_STYLE)) {
+                        textCell.getStyleClass().remove(REQUIRED_STYLE);
+                        requireItem.setText(requireTransition);
+                        menuItem.setDisable(false);
+                    } else {
+                        textCell.getStyleClass().add(REQUIRED_STYLE);
+                        requireItem.setText(releaseTransition);
+                        menuItem.setDisable(true);
+                    }
+                }
+            });
             // Creating and setting the context menu
             final ContextMenu contextMenu = new ContextMenu();
-            contextMenu.getItems().add(menuItem);
+            contextMenu.getItems().addAll(menuItem, requireItem);
             textCell.setContextMenu(contextMenu);
         }
         textCell.textProperty().addListener(new ChangeListener<String>() {
@@ -621,7 +709,7 @@ public class MainController implements Initializable {
                                 String oldValue, String newValue) {
                 try {
                     if (! newValue.equals(INFINITY_SIGN)){
-                        int value = Integer.parseInt(newValue);
+                        long value = Long.parseLong(newValue);
                         if (value < 0) {
                             throw new NumberFormatException();
                         }
@@ -691,7 +779,8 @@ public class MainController implements Initializable {
     /**
      * Solves Travelling Salesman Problem
      * in canvas mode. Reads distances between
-     * nodes on canvas and creates matrix out of it.
+     * nodes on canvas and creates instance out of it.
+     * The engine is chosen by the number of nodes.
      */
     private void solveCanvas() {
         // Circles and titles on canvas
@@ -707,38 +796,35 @@ public class MainController implements Initializable {
             }
         }
         final int size = circles.size();
-        if (size < 3 || size > 20) {
+        if (size < 3) {
             showMessage(infoTitle, infoNumberMessage);
             switchControls(false);
             return;
         }
-        // Temp matrix as jagged array
-        int[][] tempMatrix = new int[size][size];
+        // Coordinates of circles, distances are not stored
+        final double[] x = new double[size];
+        final double[] y = new double[size];
         for (int i = 0; i < size; ++ i) {
-            for (int j = i; j < size; ++ j) {
-                if (i == j) {
-                    tempMatrix[i][j] = -1;
-                } else {
-                    tempMatrix[i][j] = distance(circles.get(i), circles.get(j));
-                    tempMatrix[j][i] = tempMatrix[i][j];
-                }
-            }
+            x[i] = circles.get(i).getCenterX();
+            y[i] = circles.get(i).getCenterY();
         }
-        // Create matrix and service
-        matrix = new Matrix(tempMatrix);
+        // Create instance and service
         service = new SolverService();
-        service.setMatrix(matrix);
+        service.setInstance(new EuclideanInstance(x, y));
+        service.setEngine(canvasSolve);
         // Set action on the end of solving
         service.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
             @Override
             public void handle(WorkerStateEvent event) {
                 Route route = (Route) event.getSource().getValue();
                 if (route == null) {
-                    showMessage(infoTitle, infoSolutionMessage);
+                    showMessage(infoTitle, canvasSolve.isInfeasible() ? infoSolutionMessage : infoHeuristicMessage);
                     switchControls(false);
                     return;
                 }
-                printRouteInfo(route);
+                printRouteInfo(route, canvasSolve);
+                // Nodes, that are added next, are inserted into this route
+                liveRoute.setRoute(x, y, route);
                 Line[] lines = new Line[size];
                 createLines(lines, circles.toArray(new Circle[circles.size()]), route);
                 canvas.getChildren().clear();
@@ -767,7 +853,7 @@ public class MainController implements Initializable {
     private void solveTable() {
         // Read cells out of the table
         List<Cell> cells = extractCells();
-        if (cells.size() < 9 || cells.size() > 400) {
+        if (cells.size() < 9) {
             showMessage(infoTitle, infoNumberMessage);
             switchControls(false);
             return;
@@ -775,19 +861,23 @@ public class MainController implements Initializable {
         tabPane.getSelectionModel().select(canvasTab);
         // Create matrix and service
         matrix = new Matrix(cells);
+        for (Transition transition : extractRequired()) {
+            matrix.requireCell(transition.getFrom(), transition.getTo());
+        }
         service = new SolverService();
         service.setMatrix(matrix);
+        service.setEngine(warmStart);
         // Set action on the end of solving
         service.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
             @Override
             public void handle(WorkerStateEvent event) {
                 Route route = (Route) event.getSource().getValue();
                 if (route == null) {
-                    showMessage(infoTitle, infoSolutionMessage);
+                    showMessage(infoTitle, warmStart.isInfeasible() ? infoSolutionMessage : infoHeuristicMessage);
                     switchControls(false);
                     return;
                 }
-                printRouteInfo(route);
+                printRouteInfo(route, warmStart);
                 drawRoute(route);
                 switchControls(false);
             }
@@ -817,12 +907,33 @@ public class MainController implements Initializable {
             TextField textField = (TextField) nodes.get(i);
             int from = GridPane.getRowIndex(textField) - 1;
             int to = GridPane.getColumnIndex(textField) - 1;
-            int value = textField.getText().equals(INFINITY_SIGN) ? -1 : Integer.parseInt(textField.getText());
+            long value = textField.getText().equals(INFINITY_SIGN) ? -1 : Long.parseLong(textField.getText());
             cells.add(new Cell(value, from, to));
         }
         return cells;
     }
 
+    /**
+     * Extracts all required transitions from the table,
+     * i.e. the cells, marked as required in context menu.
+     *
+     * @return list of required transitions
+     */
+    private List<Transition> extractRequired() {
+        List<Transition> required = new ArrayList<>();
+        ObservableList<Node> nodes = table.getChildren();
+        int size = GridPane.getColumnIndex(nodes.get(nodes.size() - 1));
+        for (int i = 2 * size + 1; i < nodes.size(); ++ i) {
+            TextField textField = (TextField) nodes.get(i);
+            if (textField.getStyleClass().contains(REQUIRED_STYLE)) {
+                int from = GridPane.getRowIndex(textField) - 1;
+                int to = GridPane.getColumnIndex(textField) - 1;
+                required.add(new Transition(from, to));
+            }
+        }
+        return required;
+    }
+
     /**
      * Draws the final route on canvas.
      *
@@ -861,6 +972,35 @@ public class MainController implements Initializable {
         canvas.getChildren().addAll(titles);
     }
 
+    /**
+     * Draws the latest route, that is kept on canvas,
+     * instead of the lines, that are there.
+     * Lines are removed, if the route is not kept.
+     */
+    private void showIncrementalRoute() {
+        List<Circle> circles = new ArrayList<>();
+        List<Line> old = new ArrayList<>();
+        for (Node node : canvas.getChildren()) {
+            if (node instanceof Circle) {
+                circles.add((Circle) node);
+            }
+            if (node instanceof Line) {
+                old.add((Line) node);
+            }
+        }
+        canvas.getChildren().removeAll(old);
+        Route route = liveRoute.getRoute();
+        if (! incrementalMode.isSelected() || route == null || route.getSize() < 2) {
+            return;
+        }
+        Line[] lines = new Line[route.getSize()];
+        for (int i = 0; i < lines.length; ++ i) {
+            lines[i] = createLine(circles.get(route.getNode(i)), circles.get(route.getNode(i + 1)));
+        }
+        // Lines are under the circles
+        canvas.getChildren().addAll(0, Arrays.asList(lines));
+    }
+
     /**
      * Creates lines between nodes,
      * according to the route.
@@ -923,6 +1063,9 @@ public class MainController implements Initializable {
             public void handle(MouseEvent mouseEvent) {
                 circle.setCenterX(mouseEvent.getX());
                 circle.setCenterY(mouseEvent.getY());
+                if (incrementalMode.isSelected() && canvasMode.isSelected()) {
+                    liveRoute.move(i, mouseEvent.getX(), mouseEvent.getY());
+                }
             }
         });
         // Set context menu for renaming
@@ -1073,13 +1216,21 @@ public class MainController implements Initializable {
     /**
      * Prints to result a string representation of the route.
      * That is route cost and the description of the route.
+     * The route is called the shortest one only, if it is proven,
+     * otherwise the gap to the shortest one is printed, if it is known.
      *
      * @param route route to be printed
+     * @param solve solve, that found the route
      */
-    private void printRouteInfo(Route route) {
+    private void printRouteInfo(Route route, WarmStart solve) {
         StringBuilder resultBuilder = new StringBuilder();
         resultBuilder.append(routeCost).append(" ").append(route.getCost());
-        resultBuilder.append("\n").append(routeShortest).append("\n");
+        double gap = solve.getGap();
+        String title = routeShortest;
+        if (! solve.isProven()) {
+            title = Double.isInfinite(gap) ? routeFound : String.format(routeGap, 100 * gap);
+        }
+        resultBuilder.append("\n").append(title).append("\n");
         List<Integer> routeList = route.getRoute();
         for (int i = 0; i < routeList.size(); ++ i) {
             resultBuilder.append(routeNode).append(" ")
@@ -1110,6 +1261,7 @@ public class MainController implements Initializable {
         solveMenuItem.setDisable(value);
         maxRandomMenuItem.setDisable(value);
         symmetricMode.setDisable(value);
+        incrementalMode.setDisable(value);
         tableMode.setDisable(value);
         canvasMode.setDisable(value);
         newButton.setDisable(value);
@@ -1167,6 +1319,7 @@ public class MainController implements Initializable {
         saveMenuItem.setText(utfProperty("file.save"));
         exitMenuItem.setText(utfProperty("file.exit"));
         symmetricMode.setText(utfProperty("edit.symmetric"));
+        incrementalMode.setText(utfProperty("edit.incremental"));
         randomMenuItem.setText(utfProperty("edit.random"));
         clearMenuItem.setText(utfProperty("edit.clear"));
         clearResMenuItem.setText(utfProperty("edit.clear.result"));
@@ -1180,6 +1333,8 @@ public class MainController implements Initializable {
         startText.setText(utfProperty("start.text"));
         blockTransition = utfProperty("block");
         allowTransition = utfProperty("allow");
+        requireTransition = utfProperty("require");
+        releaseTransition = utfProperty("release");
         rename = utfProperty("rename");
         renameTitle = utfProperty("rename.title");
         renameMessage = utfProperty("rename.message");
@@ -1191,11 +1346,14 @@ public class MainController implements Initializable {
         infoNumberMessage = utfProperty("info.number.message");
         infoRandomMessage = utfProperty("info.random.message");
         infoSolutionMessage = utfProperty("info.solution");
+        infoHeuristicMessage = utfProperty("info.heuristic");
         errorTitle = utfProperty("error.title");
         errorFileMessage = utfProperty("error.file.message");
         routeCost = utfProperty("route.cost");
         routeNode = utfProperty("route.node");
         routeShortest = utfProperty("route.shortest");
+        routeGap = utfProperty("route.gap");
+        routeFound = utfProperty("route.found");
     }
 
     /**
@@ -1214,19 +1372,6 @@ public class MainController implements Initializable {
         }
     }
 
-    /**
-     * Counts distance between two circles.
-     *
-     * @param c1 first circle
-     * @param c2 second circle
-     * @return distance
-     */
-    private int distance(Circle c1, Circle c2) {
-        double dx2 = (c1.getCenterX() - c2.getCenterX()) * (c1.getCenterX() - c2.getCenterX());
-        double dy2 = (c1.getCenterY() - c2.getCenterY()) * (c1.getCenterY() - c2.getCenterY());
-        return (int) (Math.sqrt(dx2 + dy2) + 0.5);
-    }
-
     /**
      * Minimizes application window.
      *
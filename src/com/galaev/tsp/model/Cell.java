@@ -1,11 +1,12 @@
 package com.galaev.tsp.model;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleLongProperty;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
@@ -21,6 +22,22 @@ import java.io.Serializable;
  */
 public class Cell implements Serializable {
 
+    /** Serial version of the first release, so its files are still read */
+    private static final long serialVersionUID = -8443946684691506485L;
+
+    /** Format of serialized values, that are written as long */
+    private static final int LONG_FORMAT = 1;
+
+    /**
+     * Serialized fields. The format is not kept in a cell,
+     * it is 0 in files of the first release, that have int values.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("from", int.class),
+            new ObjectStreamField("to", int.class),
+            new ObjectStreamField("format", int.class)
+    };
+
     /**
      * Start point index.
      * Read-only property.
@@ -38,14 +55,14 @@ public class Cell implements Serializable {
      * the cost of the transition.
      * Read-write property.
      */
-    private transient IntegerProperty value = new SimpleIntegerProperty(0);
+    private transient LongProperty value = new SimpleLongProperty(0);
 
     /**
      * Getter for the value of a cell.
      *
      * @return cell value
      */
-    public int getValue() {
+    public long getValue() {
         return value.get();
     }
 
@@ -54,7 +71,7 @@ public class Cell implements Serializable {
      *
      * @param value cell value
      */
-    public void setValue(int value) {
+    public void setValue(long value) {
         this.value.set(value);
     }
 
@@ -85,7 +102,7 @@ public class Cell implements Serializable {
      * @param from start point index
      * @param to end point index
      */
-    public Cell(int value, int from, int to) {
+    public Cell(long value, int from, int to) {
         this.value.set(value);
         this.from = from;
         this.to = to;
@@ -99,7 +116,7 @@ public class Cell implements Serializable {
      * @param source old cell
      * @param value new value for a new cell
      */
-    public Cell(Cell source, int value) {
+    public Cell(Cell source, long value) {
         this.value.set(value);
         this.from = source.getFrom();
         this.to = source.getTo();
@@ -141,7 +158,7 @@ public class Cell implements Serializable {
         int hash = 1;
         hash = 13 * hash + from;
         hash = 13 * hash + to;
-        hash = 13 * hash + value.get();
+        hash = 13 * hash + (int) (value.get() ^ (value.get() >>> 32));
         return hash;
     }
 
@@ -152,19 +169,27 @@ public class Cell implements Serializable {
      * @throws IOException
      */
     private void writeObject(ObjectOutputStream oos) throws IOException {
-        oos.defaultWriteObject();
-        oos.writeInt(value.get());
+        ObjectOutputStream.PutField fields = oos.putFields();
+        fields.put("from", from);
+        fields.put("to", to);
+        fields.put("format", LONG_FORMAT);
+        oos.writeFields();
+        oos.writeLong(value.get());
     }
 
     /**
      * Reads cell object properly during the serialization.
+     * Values of the first release are read as int.
      *
      * @param ois object input stream
      * @throws IOException
      * @throws ClassNotFoundException
      */
     private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
-        ois.defaultReadObject();
-        value = new SimpleIntegerProperty(ois.readInt());
+        ObjectInputStream.GetField fields = ois.readFields();
+        from = fields.get("from", 0);
+        to = fields.get("to", 0);
+        boolean wide = fields.get("format", 0) >= LONG_FORMAT;
+        value = new SimpleLongProperty(wide ? ois.readLong() : ois.readInt());
     }
 }
\ No newline at end of file
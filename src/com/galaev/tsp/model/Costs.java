@@ -0,0 +1,275 @@
+package com.galaev.tsp.model;
+
+import java.io.Serializable;
+
+/**
+ * Class {@code Costs} represents an immutable array of costs
+ * of transitions. The backing storage is chosen by the range
+ * of the values: bytes, shorts, integers or long integers,
+ * so the costs, that are small, take less memory.
+ * All storages are accessed the same way, blocked transitions
+ * have the cost {@code -1} in any of them.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Instance
+ */
+public abstract class Costs implements Serializable {
+
+    /**
+     * Package-private default constructor.
+     * Costs are created by factory methods only.
+     */
+    Costs() { }
+
+    /**
+     * Creates costs with the narrowest storage,
+     * that fits all the given values.
+     *
+     * @param values costs, that are {@code -1} or greater
+     * @return costs with the same values
+     */
+    public static Costs of(long[] values) {
+        long max = -1;
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+        if (max > Integer.MAX_VALUE) {
+            return new LongCosts(values.clone());
+        }
+        int[] ints = new int[values.length];
+        for (int i = 0; i < values.length; ++ i) {
+            ints[i] = (int) values[i];
+        }
+        return of(ints, (int) max);
+    }
+
+    /**
+     * Creates costs with the narrowest storage,
+     * that fits all the given values.
+     *
+     * @param values costs, that are {@code -1} or greater
+     * @return costs with the same values
+     */
+    public static Costs of(int[] values) {
+        int max = -1;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return of(values.clone(), max);
+    }
+
+    /**
+     * Creates costs with the narrowest storage
+     * for the values with the given maximum.
+     *
+     * @param values costs, that may be taken as the integer storage
+     * @param max the greatest of the values
+     * @return costs with the same values
+     */
+    private static Costs of(int[] values, int max) {
+        if (max <= Byte.MAX_VALUE) {
+            byte[] bytes = new byte[values.length];
+            for (int i = 0; i < values.length; ++ i) {
+                bytes[i] = (byte) values[i];
+            }
+            return new ByteCosts(bytes);
+        }
+        if (max <= Short.MAX_VALUE) {
+            short[] shorts = new short[values.length];
+            for (int i = 0; i < values.length; ++ i) {
+                shorts[i] = (short) values[i];
+            }
+            return new ShortCosts(shorts);
+        }
+        return new IntCosts(values);
+    }
+
+    /**
+     * Returns the number of costs.
+     *
+     * @return number of costs
+     */
+    public abstract int length();
+
+    /**
+     * Returns the cost with the given index.
+     *
+     * @param index index of the cost
+     * @return the cost, or {@code -1}, if the transition is blocked
+     */
+    public abstract long get(int index);
+
+    /**
+     * Checks, whether the costs do not fit in 32 bits.
+     *
+     * @return true, if long integers are stored
+     */
+    public boolean isWide() {
+        return false;
+    }
+
+    /**
+     * Copies all the costs into the given array.
+     *
+     * @param target array of at least {@link #length()} elements
+     * @throws IllegalStateException if the costs are wide
+     */
+    public abstract void copyTo(int[] target);
+
+    /**
+     * Copies all the costs into the given array.
+     *
+     * @param target array of at least {@link #length()} elements
+     */
+    public void copyTo(long[] target) {
+        for (int i = 0; i < length(); ++ i) {
+            target[i] = get(i);
+        }
+    }
+
+    /**
+     * Costs, stored as bytes.
+     */
+    private static class ByteCosts extends Costs {
+
+        /* Storage */
+        private final byte[] values;
+
+        /**
+         * Package-private constructor.
+         *
+         * @param values storage
+         */
+        ByteCosts(byte[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void copyTo(int[] target) {
+            for (int i = 0; i < values.length; ++ i) {
+                target[i] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Costs, stored as shorts.
+     */
+    private static class ShortCosts extends Costs {
+
+        /* Storage */
+        private final short[] values;
+
+        /**
+         * Package-private constructor.
+         *
+         * @param values storage
+         */
+        ShortCosts(short[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void copyTo(int[] target) {
+            for (int i = 0; i < values.length; ++ i) {
+                target[i] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Costs, stored as integers.
+     */
+    private static class IntCosts extends Costs {
+
+        /* Storage */
+        private final int[] values;
+
+        /**
+         * Package-private constructor.
+         *
+         * @param values storage
+         */
+        IntCosts(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void copyTo(int[] target) {
+            System.arraycopy(values, 0, target, 0, values.length);
+        }
+    }
+
+    /**
+     * Costs, stored as long integers.
+     */
+    private static class LongCosts extends Costs {
+
+        /* Storage */
+        private final long[] values;
+
+        /**
+         * Package-private constructor.
+         *
+         * @param values storage
+         */
+        LongCosts(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public boolean isWide() {
+            return true;
+        }
+
+        @Override
+        public void copyTo(int[] target) {
+            throw new IllegalStateException("Costs do not fit in 32 bits");
+        }
+
+        @Override
+        public void copyTo(long[] target) {
+            System.arraycopy(values, 0, target, 0, values.length);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.galaev.tsp.model;
+
+/**
+ * Class {@code Estimate} represents bounds of the cost of the best
+ * route of an instance, that are found without solving it.
+ * The lower bound is proven: no route is cheaper. The upper bound
+ * is the cost of some route, if it is found.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Estimator
+ */
+public final class Estimate {
+
+    /* Proven lower bound, or Long.MAX_VALUE, if there is no route */
+    private final long lower;
+
+    /* Cost of some route, or Long.MAX_VALUE, if it is not found */
+    private final long upper;
+
+    /**
+     * Public constructor.
+     *
+     * @param lower proven lower bound,
+     *              or {@code Long.MAX_VALUE}, if there is no route at all
+     * @param upper cost of some route,
+     *              or {@code Long.MAX_VALUE}, if it is not found
+     */
+    public Estimate(long lower, long upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Getter for the lower bound.
+     *
+     * @return proven lower bound of the cost of the best route,
+     *         or {@code Long.MAX_VALUE}, if it is proven, that there is no route
+     */
+    public long getLower() {
+        return lower;
+    }
+
+    /**
+     * Getter for the upper bound.
+     *
+     * @return cost of some route, or {@code Long.MAX_VALUE}, if it is not found
+     */
+    public long getUpper() {
+        return upper;
+    }
+
+    /**
+     * Checks, whether the upper bound is found.
+     *
+     * @return true, if some route is found
+     */
+    public boolean hasUpper() {
+        return upper != Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the gap between the bounds, as a fraction
+     * of the lower bound, e.g. 0.05 for five percent.
+     *
+     * @return relative gap, or {@code Double.POSITIVE_INFINITY},
+     *         if the upper bound is not found
+     */
+    public double getGap() {
+        if (! hasUpper() || lower == Long.MAX_VALUE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return lower == 0 ? (upper == 0 ? 0 : Double.POSITIVE_INFINITY) : (double) (upper - lower) / lower;
+    }
+}
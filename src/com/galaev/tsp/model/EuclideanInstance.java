@@ -0,0 +1,242 @@
+package com.galaev.tsp.model;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class {@code EuclideanInstance} represents an immutable instance
+ * of the Travelling Salesman Problem, where the nodes are points
+ * of the plane, e.g. the nodes on the canvas. The cost of transition
+ * between two nodes is the distance between them, rounded to the
+ * nearest integer. Costs are computed from coordinates, when they
+ * are asked for, so memory is linear in the number of nodes.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Graph
+ */
+public final class EuclideanInstance implements Graph, Serializable {
+
+    /* Number of nodes */
+    private final int size;
+
+    /* Coordinates of nodes */
+    private final double[] x;
+    private final double[] y;
+
+    /* Whether some distance does not fit in 32 bits */
+    private final boolean wide;
+
+    /**
+     * Public constructor.
+     *
+     * @param x abscissas of nodes
+     * @param y ordinates of nodes
+     */
+    public EuclideanInstance(double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Coordinates must be given for each node");
+        }
+        size = x.length;
+        this.x = x.clone();
+        this.y = y.clone();
+        // The longest distance is not longer than the diagonal of the bounding box
+        double minX = Double.MAX_VALUE;
+        double maxX = - Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = - Double.MAX_VALUE;
+        for (int i = 0; i < size; ++ i) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        wide = size > 1 && Math.hypot(maxX - minX, maxY - minY) + 0.5 > Integer.MAX_VALUE;
+    }
+
+    /**
+     * Getter for the abscissa of the node.
+     *
+     * @param node node index
+     * @return abscissa
+     */
+    public double getX(int node) {
+        return x[node];
+    }
+
+    /**
+     * Getter for the ordinate of the node.
+     *
+     * @param node node index
+     * @return ordinate
+     */
+    public double getY(int node) {
+        return y[node];
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cost of transition from the node with {@code from} index
+     * to the node with {@code to} index, that is
+     * the distance between them, rounded to the nearest integer.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getCost(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        double dx = x[from] - x[to];
+        double dy = y[from] - y[to];
+        return (long) (Math.sqrt(dx * dx + dy * dy) + 0.5);
+    }
+
+    /**
+     * Returns the number of neighbours of the node.
+     * All other nodes are neighbours.
+     *
+     * @param node node index
+     * @return number of neighbours
+     */
+    @Override
+    public int getDegree(int node) {
+        return size - 1;
+    }
+
+    /**
+     * Returns the neighbour of the node with the given index.
+     * All other nodes are neighbours.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return index of the neighbour node
+     */
+    @Override
+    public int getNeighbour(int node, int index) {
+        return index < node ? index : index + 1;
+    }
+
+    /**
+     * Returns the cost of transition from the node
+     * to its neighbour with the given index.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getNeighbourCost(int node, int index) {
+        return getCost(node, getNeighbour(node, index));
+    }
+
+    /**
+     * Checks, whether the cost of transition between any two nodes
+     * is the same in both directions.
+     *
+     * @return true, if the instance is symmetric
+     */
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * Checks, whether some cost does not fit in 32 bits,
+     * so costs are stored as long integers.
+     *
+     * @return true, if the instance is wide
+     */
+    @Override
+    public boolean isWide() {
+        return wide;
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     * @throws IllegalStateException if the instance is wide
+     */
+    @Override
+    public void copyCosts(int[] target) {
+        if (wide) {
+            throw new IllegalStateException("Costs do not fit in 32 bits");
+        }
+        for (int i = 0; i < size; ++ i) {
+            for (int j = 0; j < size; ++ j) {
+                target[i * size + j] = (int) getCost(i, j);
+            }
+        }
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     */
+    @Override
+    public void copyCosts(long[] target) {
+        for (int i = 0; i < size; ++ i) {
+            for (int j = 0; j < size; ++ j) {
+                target[i * size + j] = getCost(i, j);
+            }
+        }
+    }
+
+    /**
+     * Getter for required transitions.
+     * Points have no required transitions.
+     *
+     * @return list of transitions, that must be in the route
+     */
+    @Override
+    public List<Transition> getRequired() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Checks, whether the transition from the node with {@code from} index
+     * to the node with {@code to} index must appear in the route.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return true, if the transition is required,
+     *         false otherwise
+     */
+    @Override
+    public boolean isRequired(int from, int to) {
+        return false;
+    }
+
+    /**
+     * Creates the instance of the given nodes only.
+     * Node {@code i} of the new instance is the node
+     * {@code nodes[i]} of this one.
+     *
+     * @param nodes indices of nodes
+     * @return instance of the nodes
+     */
+    public EuclideanInstance subset(int[] nodes) {
+        double[] sx = new double[nodes.length];
+        double[] sy = new double[nodes.length];
+        for (int i = 0; i < nodes.length; ++ i) {
+            sx[i] = x[nodes[i]];
+            sy[i] = y[nodes[i]];
+        }
+        return new EuclideanInstance(sx, sy);
+    }
+}
@@ -0,0 +1,117 @@
+package com.galaev.tsp.model;
+
+import java.util.List;
+
+/**
+ * Interface {@code Graph} represents an immutable instance
+ * of the Travelling Salesman Problem, as it is seen by solvers:
+ * nodes, costs of transitions between them and the transitions,
+ * that must be in the route. Blocked transitions have the cost {@code -1}.
+ * Transitions out of a node may be enumerated through its neighbours,
+ * so sparse graphs are processed without scanning all the pairs of nodes.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Instance
+ * @see com.galaev.tsp.model.SparseInstance
+ */
+public interface Graph {
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    int getSize();
+
+    /**
+     * Returns the cost of transition from the node with {@code from} index
+     * to the node with {@code to} index.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    long getCost(int from, int to);
+
+    /**
+     * Returns the number of neighbours of the node, i.e. the nodes,
+     * that transitions from the given node may lead to.
+     * Transitions to some of them may still be blocked.
+     *
+     * @param node node index
+     * @return number of neighbours
+     */
+    int getDegree(int node);
+
+    /**
+     * Returns the neighbour of the node with the given index.
+     *
+     * @param node node index
+     * @param index index of the neighbour, from 0 to the degree of the node
+     * @return index of the neighbour node
+     */
+    int getNeighbour(int node, int index);
+
+    /**
+     * Returns the cost of transition from the node
+     * to its neighbour with the given index.
+     *
+     * @param node node index
+     * @param index index of the neighbour, from 0 to the degree of the node
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    long getNeighbourCost(int node, int index);
+
+    /**
+     * Checks, whether the cost of transition between any two nodes
+     * is the same in both directions.
+     *
+     * @return true, if the graph is symmetric
+     */
+    boolean isSymmetric();
+
+    /**
+     * Checks, whether some cost does not fit in 32 bits.
+     *
+     * @return true, if the graph is wide
+     */
+    boolean isWide();
+
+    /**
+     * Copies all the costs into the given array
+     * as a square matrix, row by row.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     * @throws IllegalStateException if the graph is wide
+     */
+    void copyCosts(int[] target);
+
+    /**
+     * Copies all the costs into the given array
+     * as a square matrix, row by row.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     */
+    void copyCosts(long[] target);
+
+    /**
+     * Getter for required transitions.
+     * Returned list is unmodifiable.
+     *
+     * @return list of transitions, that must be in the route
+     */
+    List<Transition> getRequired();
+
+    /**
+     * Checks, whether the transition from the node with {@code from} index
+     * to the node with {@code to} index must appear in the route.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return true, if the transition is required,
+     *         false otherwise
+     */
+    boolean isRequired(int from, int to);
+}
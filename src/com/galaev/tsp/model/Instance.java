@@ -0,0 +1,376 @@
+package com.galaev.tsp.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class {@code Instance} represents an immutable
+ * instance of the Travelling Salesman Problem.
+ * It contains the costs of transitions between
+ * the nodes and the transitions, that must be in the route.
+ * Unlike {@link com.galaev.tsp.model.Matrix}, an instance is never
+ * changed by the solver, so one instance may be solved
+ * by several solvers concurrently.
+ * Blocked transitions have the cost {@code -1}.
+ * Costs are stored in the narrowest storage, that fits them.
+ * If some of them does not fit in 32 bits, the instance
+ * is wide, i.e. costs are stored as long integers.
+ * If costs are symmetric about the main diagonal,
+ * only the upper triangle of them is stored.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Matrix
+ * @see com.galaev.tsp.model.Costs
+ * @see com.galaev.tsp.model.SparseInstance
+ */
+public final class Instance implements Graph, Serializable {
+
+    /* Number of nodes */
+    private final int size;
+
+    /* Costs of transitions, row by row, or the upper triangle of them */
+    private final Costs costs;
+
+    /* Whether costs are symmetric about the main diagonal */
+    private final boolean symmetric;
+
+    /* Transitions, that must be in the route */
+    private final List<Transition> required;
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cost of transition from the node with {@code from} index
+     * to the node with {@code to} index.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getCost(int from, int to) {
+        if (! symmetric) {
+            return costs.get(from * size + to);
+        }
+        if (from == to) {
+            return -1;
+        }
+        return from < to ? costs.get(triangle(from, to)) : costs.get(triangle(to, from));
+    }
+
+    /**
+     * Returns the number of neighbours of the node.
+     * In a dense instance all other nodes are neighbours.
+     *
+     * @param node node index
+     * @return number of neighbours
+     */
+    @Override
+    public int getDegree(int node) {
+        return size - 1;
+    }
+
+    /**
+     * Returns the neighbour of the node with the given index.
+     * In a dense instance all other nodes are neighbours.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return index of the neighbour node
+     */
+    @Override
+    public int getNeighbour(int node, int index) {
+        return index < node ? index : index + 1;
+    }
+
+    /**
+     * Returns the cost of transition from the node
+     * to its neighbour with the given index.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getNeighbourCost(int node, int index) {
+        return getCost(node, getNeighbour(node, index));
+    }
+
+    /**
+     * Checks, whether the cost of transition between any two nodes
+     * is the same in both directions.
+     *
+     * @return true, if the instance is symmetric
+     */
+    @Override
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * Checks, whether some cost does not fit in 32 bits,
+     * so costs are stored as long integers.
+     *
+     * @return true, if the instance is wide
+     */
+    @Override
+    public boolean isWide() {
+        return costs.isWide();
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     * @throws IllegalStateException if the instance is wide
+     */
+    @Override
+    public void copyCosts(int[] target) {
+        if (! symmetric) {
+            costs.copyTo(target);
+            return;
+        }
+        int[] upper = new int[costs.length()];
+        costs.copyTo(upper);
+        for (int i = 0; i < size; ++ i) {
+            target[i * size + i] = -1;
+            for (int j = i + 1; j < size; ++ j) {
+                target[i * size + j] = upper[triangle(i, j)];
+                target[j * size + i] = target[i * size + j];
+            }
+        }
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     */
+    @Override
+    public void copyCosts(long[] target) {
+        if (! symmetric) {
+            costs.copyTo(target);
+            return;
+        }
+        long[] upper = new long[costs.length()];
+        costs.copyTo(upper);
+        for (int i = 0; i < size; ++ i) {
+            target[i * size + i] = -1;
+            for (int j = i + 1; j < size; ++ j) {
+                target[i * size + j] = upper[triangle(i, j)];
+                target[j * size + i] = target[i * size + j];
+            }
+        }
+    }
+
+    /**
+     * Getter for required transitions.
+     * Returned list is unmodifiable.
+     *
+     * @return list of transitions, that must be in the route
+     */
+    @Override
+    public List<Transition> getRequired() {
+        return required;
+    }
+
+    /**
+     * Checks, whether the transition from the node with {@code from} index
+     * to the node with {@code to} index must appear in the route.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return true, if the transition is required,
+     *         false otherwise
+     */
+    @Override
+    public boolean isRequired(int from, int to) {
+        for (Transition transition : required) {
+            if (transition.getFrom() == from &&
+                transition.getTo() == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance, that is a snapshot
+     * of the given matrix and its required transitions.
+     * Later changes of the matrix do not affect the instance.
+     *
+     * @param matrix source matrix
+     */
+    public Instance(Matrix matrix) {
+        size = matrix.getSize();
+        long[] values = new long[size * size];
+        for (Cell cell : matrix) {
+            values[cell.getFrom() * size + cell.getTo()] = cell.getValue();
+        }
+        blockDiagonal(values, size);
+        symmetric = isSymmetric(values, size);
+        costs = Costs.of(symmetric ? upperTriangle(values, size) : values);
+        required = Collections.unmodifiableList(new ArrayList<>(matrix.getRequired()));
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance, that corresponds to
+     * two-dimensional integer array, given as a parameter.
+     *
+     * @param cells 2-dim int array
+     */
+    public Instance(int[][] cells) {
+        size = cells.length;
+        int[] values = new int[size * size];
+        for (int i = 0; i < size; ++ i) {
+            for (int j = 0; j < size; ++ j) {
+                values[i * size + j] = i == j ? -1 : cells[i][j];
+            }
+        }
+        symmetric = isSymmetric(values, size);
+        costs = Costs.of(symmetric ? upperTriangle(values, size) : values);
+        required = Collections.emptyList();
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance, that corresponds to
+     * two-dimensional long array, given as a parameter.
+     *
+     * @param cells 2-dim long array
+     */
+    public Instance(long[][] cells) {
+        this(cells, Collections.<Transition>emptyList());
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance, that corresponds to
+     * two-dimensional long array, given as a parameter,
+     * with the given required transitions.
+     *
+     * @param cells 2-dim long array
+     * @param required transitions, that must be in the route
+     */
+    public Instance(long[][] cells, List<Transition> required) {
+        size = cells.length;
+        long[] values = new long[size * size];
+        for (int i = 0; i < size; ++ i) {
+            System.arraycopy(cells[i], 0, values, i * size, size);
+        }
+        blockDiagonal(values, size);
+        symmetric = isSymmetric(values, size);
+        costs = Costs.of(symmetric ? upperTriangle(values, size) : values);
+        this.required = Collections.unmodifiableList(new ArrayList<>(required));
+    }
+
+    /**
+     * Blocks the main diagonal of the costs.
+     *
+     * @param values costs, row by row
+     * @param size number of nodes
+     */
+    private static void blockDiagonal(long[] values, int size) {
+        for (int i = 0; i < size; ++ i) {
+            values[i * size + i] = -1;
+        }
+    }
+
+    /**
+     * Returns the position of the cell in the upper triangle,
+     * stored row by row without the main diagonal.
+     *
+     * @param i row index, that is less than column index
+     * @param j column index
+     * @return position of the cell
+     */
+    private int triangle(int i, int j) {
+        return i * (2 * size - i - 1) / 2 + j - i - 1;
+    }
+
+    /**
+     * Checks, whether costs are symmetric about the main diagonal.
+     *
+     * @param values costs, row by row
+     * @param size number of nodes
+     * @return true, if costs are symmetric
+     */
+    private static boolean isSymmetric(long[] values, int size) {
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                if (values[i * size + j] != values[j * size + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks, whether costs are symmetric about the main diagonal.
+     *
+     * @param values costs, row by row
+     * @param size number of nodes
+     * @return true, if costs are symmetric
+     */
+    private static boolean isSymmetric(int[] values, int size) {
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                if (values[i * size + j] != values[j * size + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Extracts the upper triangle of costs without the main diagonal.
+     *
+     * @param values costs, row by row
+     * @param size number of nodes
+     * @return the upper triangle, row by row
+     */
+    private static long[] upperTriangle(long[] values, int size) {
+        long[] upper = new long[size * (size - 1) / 2];
+        int k = 0;
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                upper[k++] = values[i * size + j];
+            }
+        }
+        return upper;
+    }
+
+    /**
+     * Extracts the upper triangle of costs without the main diagonal.
+     *
+     * @param values costs, row by row
+     * @param size number of nodes
+     * @return the upper triangle, row by row
+     */
+    private static int[] upperTriangle(int[] values, int size) {
+        int[] upper = new int[size * (size - 1) / 2];
+        int k = 0;
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                upper[k++] = values[i * size + j];
+            }
+        }
+        return upper;
+    }
+}
@@ -1,5 +1,7 @@
 package com.galaev.tsp.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -19,43 +21,22 @@ import java.util.Scanner;
  * @see com.galaev.tsp.model.Cell
  */
 public class Matrix
-        implements Comparable<Matrix>, Iterable<Cell>, Serializable {
+        implements Iterable<Cell>, Serializable {
 
-    /* Total current cost of transitions*/
-    private int cost;
+    /** Serial version of the first release, so its files are still read */
+    private static final long serialVersionUID = -7022372005203887575L;
 
-    /* Current size of the matrix*/
-    private int size;
+    /** Line of the text form, that the required transitions follow */
+    private static final String REQUIRED_HEADER = "required";
 
-    /* Index of the current node */
-    private int current;
+    /* Size of the matrix*/
+    private int size;
 
     /* Matrix itself */
     private List<Cell> matrix;
 
-    /* List of performed transitions */
-    private List<Transition> transitions;
-
-    /* Remained ways, i.e. indices of unvisited nodes */
-    private List<Integer> remaining;
-
-    /**
-     * Getter for total cost.
-     *
-     * @return total current cost of transitions
-     */
-    public int getCost() {
-        return cost;
-    }
-
-    /**
-     * Setter for total current cost of transitions.
-     *
-     * @param cost current cost
-     */
-    public void setCost(int cost) {
-        this.cost = cost;
-    }
+    /* List of transitions, that must be in the route */
+    private List<Transition> required;
 
     /**
      * Getter for size of the matrix.
@@ -66,15 +47,6 @@ public class Matrix
         return size;
     }
 
-    /**
-     * Setter for size of the matrix.
-     *
-     * @param size size of the matrix
-     */
-    public void setSize(int size) {
-        this.size = size;
-    }
-
     /**
      * Returns the length of the list, that
      * contains the matrix, i.e. returns
@@ -137,82 +109,46 @@ public class Matrix
     }
 
     /**
-     * Decreases on {@code sub} the value of the cell
-     * which index is {@code index} in the matrix list.
-     * Note: the actual cell is not changed. In fact, it is
-     * replaced with the new cell with diminished value.
-     *
-     * @param index index of the cell in the list
-     * @param sub value to be subtracted from the cell value
-     */
-    public void decreaseCellValue(int index, int sub) {
-        Cell cell = getCell(index); // find cell
-        matrix.set(index, new Cell(cell, cell.getValue() - sub)); // replace
-    }
-
-    /**
-     * Removes the cell with index {@code index}
-     * from the matrix list completely.
+     * Requires the transition from the node with {@code from} index
+     * to the node with {@code to} index, i.e. marks it
+     * as a transition, that must appear in the route.
+     * Branch & bound algorithm treats required transitions
+     * as the branching decisions, that are made before the search.
      *
-     * @param index index of the cell in the list
+     * @param from start node index in the matrix
+     * @param to end node index in the matrix
      */
-    public void removeCell(int index) {
-        matrix.remove(index);
+    public void requireCell(int from, int to) {
+        if (isRequired(from, to)) return;
+        required.add(new Transition(from, to));
     }
 
     /**
-     * Finds index of the next node to go to from the current node.
-     * Returns {@code -1}, if there are no available
-     * nodes to perform transition.
+     * Checks, whether the transition from the node with {@code from} index
+     * to the node with {@code to} index must appear in the route.
      *
-     * @return index of the next node in the route
+     * @param from start node index in the matrix
+     * @param to end node index in the matrix
+     * @return true, if the transition is required,
+     *         false otherwise
      */
-    public int findNextNode() {
-        for (int i : remaining) {
-            if (findCell(getCurrent(), i).getValue() == 0) { // if we can go there
-                return i;
+    public boolean isRequired(int from, int to) {
+        for (Transition transition : required) {
+            if (transition.getFrom() == from &&
+                transition.getTo() == to) {
+                return true;
             }
         }
-        return -1;
+        return false;
     }
 
     /**
-     * Getter for index of the current node.
+     * Getter for required transitions list.
      *
-     * @return index of the last visited node.
+     * @return list of transitions, that must be in the route
      */
-    public int getCurrent() {
-        return current;
-    }
-
-    /**
-     * Setter for index of the current node.
-     *
-     * @param current index of the last visited node.
-     */
-    public void setCurrent(int current) {
-        this.current = current;
-        remaining.remove(new Integer(current)); // cannot go there again
-    }
-
-    /**
-     * Getter for transitions list.
-     * Returns current list of performed transitions.
-     *
-     * @return list of performed transitions
-     */
-    public List<Transition> getTransitions() {
-        return transitions;
-    }
-
-    /**
-     * Adds new transition to the list of performed transitions.
-     *
-     * @param from start node index of the transition
-     * @param to end node index of the transition
-     */
-    public void addTransition(int from, int to) {
-        transitions.add(new Transition(from, to));
+    public List<Transition> getRequired() {
+        return required;
     }
 
     /**
@@ -223,14 +159,10 @@ public class Matrix
      */
     public Matrix(Matrix copy) {
         size = copy.size;
-        cost = copy.cost;
-        current = copy.current;
         matrix = new ArrayList<>();
-        transitions = new ArrayList<>();
-        remaining = new ArrayList<>();
+        required = new ArrayList<>();
         matrix.addAll(copy.matrix);
-        transitions.addAll(copy.transitions);
-        remaining.addAll(copy.remaining);
+        required.addAll(copy.required);
     }
 
     /**
@@ -243,11 +175,7 @@ public class Matrix
     public Matrix(List<Cell> cells) {
         size = cells.get(cells.size() - 1).getFrom() + 1;
         matrix = cells;
-        transitions = new ArrayList<>();
-        remaining = new ArrayList<>();
-        for (int i = 0; i < size; ++ i) {
-            remaining.add(i);
-        }
+        required = new ArrayList<>();
     }
 
     /**
@@ -266,11 +194,7 @@ public class Matrix
                 matrix.add(cell);
             }
         }
-        transitions = new ArrayList<>();
-        remaining = new ArrayList<>();
-        for (int i = 0; i < size; ++ i) {
-            remaining.add(i);
-        }
+        required = new ArrayList<>();
     }
 
     /**
@@ -278,6 +202,9 @@ public class Matrix
      * Creates a matrix, that corresponds to
      * text description of matrix, provided by Scanner,
      * that is given as a parameter.
+     * The matrix may be followed by the line {@code required}
+     * and the required transitions, one per line, as pairs
+     * of node numbers, that start from 1.
      *
      * @param inp input scanner
      */
@@ -286,14 +213,10 @@ public class Matrix
         String[] values = line.split(" ");
         size = values.length;
         matrix = new ArrayList<>();
-        transitions = new ArrayList<>();
-        remaining = new ArrayList<>();
-        for (int i = 0; i < size; ++ i) {
-            remaining.add(i);
-        }
+        required = new ArrayList<>();
         for (int i = 0; i < size; ++ i) {
             for (int j = 0; j < size; ++ j) {
-                int value = Integer.parseInt(values[j]);
+                long value = Long.parseLong(values[j]);
                 if (i == j) value = -1;
                 matrix.add(new Cell(value, i, j));
             }
@@ -302,11 +225,23 @@ public class Matrix
                 values = line.split(" ");
             }
         }
+        while (line.trim().isEmpty() && inp.hasNextLine()) {
+            line = inp.nextLine();
+        }
+        if (REQUIRED_HEADER.equals(line.trim())) {
+            while (inp.hasNextLine()) {
+                String[] pair = inp.nextLine().trim().split(" +");
+                if (pair.length == 2) {
+                    requireCell(Integer.parseInt(pair[0]) - 1, Integer.parseInt(pair[1]) - 1);
+                }
+            }
+        }
     }
 
     /**
      * Returns a string representation of the object.
-     * That is the matrix as text, divided with spaces.
+     * That is the matrix as text, divided with spaces,
+     * followed by the required transitions, if there are any.
      *
      * @return string, contatining the matrix
      */
@@ -318,19 +253,28 @@ public class Matrix
             }
             str += "\n";
         }
+        if (! required.isEmpty()) {
+            str += REQUIRED_HEADER + "\n";
+            for (Transition transition : required) {
+                str += (transition.getFrom() + 1) + " " + (transition.getTo() + 1) + "\n";
+            }
+        }
         return str;
     }
 
     /**
-     * Compares this matrix to another.
+     * Reads matrix object properly during the serialization.
+     * Files of the first release have no required transitions.
      *
-     * @param o another matrix
-     * @return if this matrix has greater cost returns
-     *         {@code true}, otherwise returns {@code false}
+     * @param ois object input stream
+     * @throws IOException
+     * @throws ClassNotFoundException
      */
-    @Override
-    public int compareTo(Matrix o) {
-        return this.cost - o.cost;
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        if (required == null) {
+            required = new ArrayList<>();
+        }
     }
 
     /**
@@ -1,6 +1,7 @@
 package com.galaev.tsp.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -9,35 +10,81 @@ import java.util.List;
  * the complete route through all the cities (nodes of
  * the graph) and the cost of this route (in other words,
  * its length).
+ * <p>
+ * Nodes are kept in a primitive array, the list view
+ * of {@link #getRoute()} does not copy them.
  *
  * @author Anton Galaev
  * @see com.galaev.tsp.model.Transition
+ * @see com.galaev.tsp.model.Tour
  */
 public class Route {
 
     /* The cost (length) of the route */
-    private int cost;
+    private long cost;
 
-    /* The route itself as ordered list of node indexes */
-    private List<Integer> route;
+    /* The route itself as node indexes in order, the start node is repeated at the end */
+    private final int[] nodes;
 
     /**
      * Getter for the cost (length) of the route.
      *
      * @return cost of the route
      */
-    public int getCost() {
+    public long getCost() {
         return cost;
     }
 
     /**
      * Getter for route itself.
-     * Returns ordered list of node indexes.
+     * Returns ordered list of node indexes,
+     * the start node is repeated at the end.
+     * The list is unmodifiable.
      *
      * @return route list
      */
     public List<Integer> getRoute() {
-        return route;
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(int index) {
+                return nodes[index];
+            }
+
+            @Override
+            public int size() {
+                return nodes.length;
+            }
+        };
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes of the route
+     */
+    public int getSize() {
+        return nodes.length - 1;
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param index position in the route, from 0 to the number of nodes,
+     *              the last one is the start node again
+     * @return node index
+     */
+    public int getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the nodes of the route in order,
+     * without the start node repeated at the end.
+     *
+     * @return new array of node indexes
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(nodes, nodes.length - 1);
     }
 
     /**
@@ -48,12 +95,27 @@ public class Route {
      * @param cost cost of the route
      * @param transitions performed transitions
      */
-    public Route(int cost, List<Transition> transitions) {
+    public Route(long cost, List<Transition> transitions) {
         this.cost = cost;
-        route = new ArrayList<>(transitions.size() / 2);
-        route.add(transitions.get(0).getFrom());
+        nodes = new int[transitions.size() + 1];
+        nodes[0] = transitions.get(0).getFrom();
+        int i = 0;
         for (Transition transition : transitions) {
-            route.add(transition.getTo());
+            nodes[++ i] = transition.getTo();
         }
     }
+
+    /**
+     * Public constructor for class {@code Route}.
+     * Creates an instance with the given cost and nodes.
+     *
+     * @param cost cost of the route
+     * @param order node indexes in order, without
+     *              the start node repeated at the end
+     */
+    public Route(long cost, int[] order) {
+        this.cost = cost;
+        nodes = Arrays.copyOf(order, order.length + 1);
+        nodes[order.length] = order[0];
+    }
 }
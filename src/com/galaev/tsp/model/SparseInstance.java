@@ -0,0 +1,392 @@
+package com.galaev.tsp.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class {@code SparseInstance} represents an immutable
+ * instance of the Travelling Salesman Problem, where most
+ * of the transitions are blocked. Only available transitions
+ * are stored, in compressed sparse row form: transitions
+ * out of each node are kept together, sorted by the end node.
+ * Thus, memory is proportional to the number of available
+ * transitions, not to the square of the number of nodes.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Graph
+ * @see com.galaev.tsp.model.Instance
+ */
+public final class SparseInstance implements Graph, Serializable {
+
+    /** Share of available transitions, below which a matrix is considered sparse */
+    public static final double DENSITY_THRESHOLD = 0.25;
+
+    /* Number of nodes */
+    private final int size;
+
+    /* Position of the first transition out of each node, and the total number at the end */
+    private final int[] rowStart;
+
+    /* End nodes of transitions */
+    private final int[] columns;
+
+    /* Costs of transitions */
+    private final Costs costs;
+
+    /* Whether costs are symmetric */
+    private final boolean symmetric;
+
+    /* Transitions, that must be in the route */
+    private final List<Transition> required;
+
+    /**
+     * Public constructor.
+     * Creates an instance out of the list of available transitions.
+     * Transitions may be given in any order, but each of them only once.
+     *
+     * @param size number of nodes
+     * @param from start nodes of transitions
+     * @param to end nodes of transitions
+     * @param values costs of transitions, that are not negative
+     */
+    public SparseInstance(int size, int[] from, int[] to, long[] values) {
+        this(size, from, to, values, Collections.<Transition>emptyList());
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance, that is a snapshot of available transitions
+     * of the given matrix and its required transitions.
+     *
+     * @param matrix source matrix
+     */
+    public SparseInstance(Matrix matrix) {
+        this(matrix.getSize(), new Edges(matrix));
+    }
+
+    /**
+     * Private constructor, that takes transitions extracted from a matrix.
+     *
+     * @param size number of nodes
+     * @param edges transitions of the matrix
+     */
+    private SparseInstance(int size, Edges edges) {
+        this(size, edges.from, edges.to, edges.values, edges.required);
+    }
+
+    /**
+     * Public constructor.
+     * Creates an instance out of the list of available transitions
+     * and the transitions, that must be in the route.
+     *
+     * @param size number of nodes
+     * @param from start nodes of transitions
+     * @param to end nodes of transitions
+     * @param values costs of transitions, that are not negative
+     * @param required required transitions
+     */
+    public SparseInstance(int size, int[] from, int[] to, long[] values, List<Transition> required) {
+        this.size = size;
+        int count = from.length;
+        // Count transitions out of each node
+        rowStart = new int[size + 1];
+        for (int i = 0; i < count; ++ i) {
+            ++ rowStart[from[i] + 1];
+        }
+        for (int i = 0; i < size; ++ i) {
+            rowStart[i + 1] += rowStart[i];
+        }
+        // Place transitions into their rows
+        int[] position = Arrays.copyOf(rowStart, size);
+        columns = new int[count];
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; ++ i) {
+            int k = position[from[i]]++;
+            columns[k] = to[i];
+            sorted[k] = values[i];
+        }
+        // Sort each row by the end node
+        for (int i = 0; i < size; ++ i) {
+            if (rowStart[i + 1] - rowStart[i] > 1) {
+                sortRow(rowStart[i], rowStart[i + 1], sorted);
+            }
+        }
+        costs = Costs.of(sorted);
+        this.required = Collections.unmodifiableList(new ArrayList<>(required));
+        symmetric = checkSymmetric();
+    }
+
+    /**
+     * Checks, whether a matrix is sparse enough
+     * to be stored as a sparse instance.
+     *
+     * @param matrix matrix to check
+     * @return true, if the share of available transitions is small
+     */
+    public static boolean isSparse(Matrix matrix) {
+        int size = matrix.getSize();
+        int available = 0;
+        for (Cell cell : matrix) {
+            if (cell.getValue() >= 0 && cell.getFrom() != cell.getTo()) {
+                ++ available;
+            }
+        }
+        return available < DENSITY_THRESHOLD * size * (size - 1);
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the cost of transition from the node with {@code from} index
+     * to the node with {@code to} index.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getCost(int from, int to) {
+        int k = find(from, to);
+        return k < 0 ? -1 : costs.get(k);
+    }
+
+    /**
+     * Returns the number of neighbours of the node.
+     * Only nodes, that are reached by available transitions, are neighbours.
+     *
+     * @param node node index
+     * @return number of neighbours
+     */
+    @Override
+    public int getDegree(int node) {
+        return rowStart[node + 1] - rowStart[node];
+    }
+
+    /**
+     * Returns the neighbour of the node with the given index.
+     * Only nodes, that are reached by available transitions, are neighbours.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return index of the neighbour node
+     */
+    @Override
+    public int getNeighbour(int node, int index) {
+        return columns[rowStart[node] + index];
+    }
+
+    /**
+     * Returns the cost of transition from the node
+     * to its neighbour with the given index.
+     *
+     * @param node node index
+     * @param index index of the neighbour
+     * @return cost of the transition, or {@code -1}, if it is blocked
+     */
+    @Override
+    public long getNeighbourCost(int node, int index) {
+        return costs.get(rowStart[node] + index);
+    }
+
+    /**
+     * Checks, whether the cost of transition between any two nodes
+     * is the same in both directions.
+     *
+     * @return true, if the instance is symmetric
+     */
+    @Override
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * Checks, whether some cost does not fit in 32 bits,
+     * so costs are stored as long integers.
+     *
+     * @return true, if the instance is wide
+     */
+    @Override
+    public boolean isWide() {
+        return costs.isWide();
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     * @throws IllegalStateException if the instance is wide
+     */
+    @Override
+    public void copyCosts(int[] target) {
+        if (costs.isWide()) {
+            throw new IllegalStateException("Costs do not fit in 32 bits");
+        }
+        Arrays.fill(target, 0, size * size, -1);
+        for (int i = 0; i < size; ++ i) {
+            for (int k = rowStart[i]; k < rowStart[i + 1]; ++ k) {
+                target[i * size + columns[k]] = (int) costs.get(k);
+            }
+        }
+    }
+
+    /**
+     * Copies all the costs, row by row, into the given array.
+     * The array must have at least {@code size * size} elements.
+     *
+     * @param target array to copy to
+     */
+    @Override
+    public void copyCosts(long[] target) {
+        Arrays.fill(target, 0, size * size, -1);
+        for (int i = 0; i < size; ++ i) {
+            for (int k = rowStart[i]; k < rowStart[i + 1]; ++ k) {
+                target[i * size + columns[k]] = costs.get(k);
+            }
+        }
+    }
+
+    /**
+     * Getter for required transitions.
+     * Returned list is unmodifiable.
+     *
+     * @return list of transitions, that must be in the route
+     */
+    @Override
+    public List<Transition> getRequired() {
+        return required;
+    }
+
+    /**
+     * Checks, whether the transition from the node with {@code from} index
+     * to the node with {@code to} index must appear in the route.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return true, if the transition is required,
+     *         false otherwise
+     */
+    @Override
+    public boolean isRequired(int from, int to) {
+        for (Transition transition : required) {
+            if (transition.getFrom() == from &&
+                transition.getTo() == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of available transitions.
+     *
+     * @return number of stored transitions
+     */
+    public int getTransitionCount() {
+        return columns.length;
+    }
+
+    /**
+     * Finds the position of the transition in the storage.
+     *
+     * @param from start node index
+     * @param to end node index
+     * @return position of the transition, or negative value, if it is not stored
+     */
+    private int find(int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        return Arrays.binarySearch(columns, rowStart[from], rowStart[from + 1], to);
+    }
+
+    /**
+     * Checks, whether each stored transition has
+     * the reverse one with the same cost.
+     *
+     * @return true, if costs are symmetric
+     */
+    private boolean checkSymmetric() {
+        for (int i = 0; i < size; ++ i) {
+            for (int k = rowStart[i]; k < rowStart[i + 1]; ++ k) {
+                int r = find(columns[k], i);
+                if (r < 0 || costs.get(r) != costs.get(k)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sorts transitions of a row by the end node.
+     *
+     * @param from first position of the row
+     * @param to position after the last one of the row
+     * @param values costs, that are moved together with end nodes
+     */
+    private void sortRow(int from, int to, long[] values) {
+        // Sort end nodes together with their positions
+        long[] keys = new long[to - from];
+        for (int i = from; i < to; ++ i) {
+            keys[i - from] = ((long) columns[i] << 32) | (i - from);
+        }
+        Arrays.sort(keys);
+        long[] row = Arrays.copyOfRange(values, from, to);
+        for (int i = from; i < to; ++ i) {
+            columns[i] = (int) (keys[i - from] >>> 32);
+            values[i] = row[(int) keys[i - from]];
+        }
+    }
+
+    /**
+     * Available transitions, extracted from a matrix.
+     */
+    private static class Edges {
+
+        /* Transitions */
+        private final int[] from;
+        private final int[] to;
+        private final long[] values;
+        private final List<Transition> required;
+
+        /**
+         * Package-private constructor.
+         * Extracts available transitions from the matrix.
+         *
+         * @param matrix source matrix
+         */
+        Edges(Matrix matrix) {
+            int count = 0;
+            for (Cell cell : matrix) {
+                if (cell.getValue() >= 0 && cell.getFrom() != cell.getTo()) {
+                    ++ count;
+                }
+            }
+            from = new int[count];
+            to = new int[count];
+            values = new long[count];
+            int k = 0;
+            for (Cell cell : matrix) {
+                if (cell.getValue() >= 0 && cell.getFrom() != cell.getTo()) {
+                    from[k] = cell.getFrom();
+                    to[k] = cell.getTo();
+                    values[k] = cell.getValue();
+                    ++ k;
+                }
+            }
+            required = matrix.getRequired();
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.galaev.tsp.model;
+
+/**
+ * Class {@code Tour} represents a route, that is changed in place
+ * by local search. Nodes are kept in a primitive array together
+ * with the position of each node, and moves are evaluated
+ * in constant time: a swap of two nodes, a 2-opt move, that reverses
+ * a path, and an or-opt move, that takes a short path elsewhere.
+ * <p>
+ * The cost of a reversed path is known in constant time even for
+ * an asymmetric graph, because the costs along the route are summed
+ * up in both directions. When a move is applied, the sums are
+ * computed again, that takes linear time. Moves, that use a blocked
+ * transition or break a required one, are infeasible.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Route
+ * @see com.galaev.tsp.model.TwoLevelTour
+ */
+public final class Tour {
+
+    /** Cost change of a move, that is not possible */
+    public static final long INFEASIBLE = Long.MAX_VALUE;
+
+    /* Graph of the route */
+    private final Graph graph;
+
+    /* Number of nodes */
+    private final int size;
+
+    /* Nodes in the order of the route */
+    private final int[] order;
+
+    /* Position of each node in the route */
+    private final int[] position;
+
+    /* Sums of costs of transitions along the route from position 0 up to each position */
+    private final long[] forward;
+
+    /* Sums of costs of the same transitions, if they are reversed */
+    private final long[] backward;
+
+    /* Numbers of blocked reversed transitions up to each position */
+    private final int[] blocked;
+
+    /* Numbers of required transitions up to each position */
+    private final int[] required;
+
+    /* Cost of the route */
+    private long cost;
+
+    /**
+     * Public constructor.
+     *
+     * @param graph graph of the route
+     * @param route route of all the nodes of the graph
+     */
+    public Tour(Graph graph, Route route) {
+        this(graph, route.toArray());
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param graph graph of the route
+     * @param nodes all the nodes of the graph in order, that are copied
+     * @throws IllegalArgumentException if a transition of the route is blocked
+     */
+    public Tour(Graph graph, int[] nodes) {
+        this.graph = graph;
+        size = nodes.length;
+        order = nodes.clone();
+        position = new int[graph.getSize()];
+        forward = new long[size];
+        backward = new long[size];
+        blocked = new int[size];
+        required = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            position[order[i]] = i;
+        }
+        if (evaluate() == INFEASIBLE) {
+            throw new IllegalArgumentException("Route has a blocked transition");
+        }
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter for the cost of the route.
+     *
+     * @return cost of the route
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param index position in the route
+     * @return node index
+     */
+    public int getNode(int index) {
+        return order[index];
+    }
+
+    /**
+     * Returns the position of the given node.
+     *
+     * @param node node index
+     * @return position in the route
+     */
+    public int getPosition(int node) {
+        return position[node];
+    }
+
+    /**
+     * Returns the node, that follows the given one.
+     *
+     * @param node node index
+     * @return index of the next node
+     */
+    public int next(int node) {
+        int i = position[node] + 1;
+        return order[i == size ? 0 : i];
+    }
+
+    /**
+     * Returns the node, that precedes the given one.
+     *
+     * @param node node index
+     * @return index of the previous node
+     */
+    public int previous(int node) {
+        int i = position[node];
+        return order[i == 0 ? size - 1 : i - 1];
+    }
+
+    /**
+     * Computes the cost of the route and the sums
+     * along it again, after the route is changed.
+     *
+     * @return cost of the route, or {@link #INFEASIBLE},
+     *         if some transition of it is blocked
+     */
+    public long evaluate() {
+        long sum = 0;
+        long reversed = 0;
+        int blockedCount = 0;
+        int requiredCount = 0;
+        boolean feasible = true;
+        for (int i = 0; i < size; ++ i) {
+            forward[i] = sum;
+            backward[i] = reversed;
+            blocked[i] = blockedCount;
+            required[i] = requiredCount;
+            int from = order[i];
+            int to = order[i + 1 == size ? 0 : i + 1];
+            long value = graph.getCost(from, to);
+            if (value < 0) {
+                feasible = false;
+            }
+            sum += value;
+            long back = graph.getCost(to, from);
+            if (back < 0) {
+                ++ blockedCount;
+            } else {
+                reversed += back;
+            }
+            if (graph.isRequired(from, to)) {
+                ++ requiredCount;
+            }
+        }
+        cost = feasible ? sum : INFEASIBLE;
+        return cost;
+    }
+
+    /**
+     * Evaluates the swap of the nodes at the given positions.
+     *
+     * @param i position of the first node
+     * @param j position of the second node
+     * @return change of the cost, or {@link #INFEASIBLE}
+     */
+    public long swapDelta(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        // Transitions, that start at the positions before and at both nodes
+        int[] starts = {before(i), i, before(j), j};
+        long delta = 0;
+        for (int k = 0; k < starts.length; ++ k) {
+            int start = starts[k];
+            if (isCounted(starts, k)) {
+                continue;
+            }
+            int end = after(start);
+            int from = order[start];
+            int to = order[end];
+            int newFrom = order[start == i ? j : start == j ? i : start];
+            int newTo = order[end == i ? j : end == j ? i : end];
+            if (from == newFrom && to == newTo) {
+                continue;
+            }
+            long value = graph.getCost(newFrom, newTo);
+            if (value < 0 || graph.isRequired(from, to)) {
+                return INFEASIBLE;
+            }
+            delta += value - graph.getCost(from, to);
+        }
+        return delta;
+    }
+
+    /**
+     * Evaluates the 2-opt move, that reverses the path
+     * between the positions {@code i + 1} and {@code j}.
+     *
+     * @param i position before the path
+     * @param j last position of the path, greater than {@code i}
+     * @return change of the cost, or {@link #INFEASIBLE}
+     */
+    public long twoOptDelta(int i, int j) {
+        if (j - i < 2) {
+            return 0;
+        }
+        int a = order[i];
+        int b = order[i + 1];
+        int c = order[j];
+        int d = order[after(j)];
+        if (blocked[j] != blocked[i + 1] || required[j] != required[i + 1]
+                || graph.isRequired(a, b) || graph.isRequired(c, d)) {
+            return INFEASIBLE;
+        }
+        long first = graph.getCost(a, c);
+        long second = graph.getCost(b, d);
+        if (first < 0 || second < 0) {
+            return INFEASIBLE;
+        }
+        return first + second - graph.getCost(a, b) - graph.getCost(c, d)
+                + (backward[j] - backward[i + 1]) - (forward[j] - forward[i + 1]);
+    }
+
+    /**
+     * Evaluates the or-opt move, that takes the path
+     * of the given length away and inserts it between
+     * the position {@code j} and the next one.
+     *
+     * @param i first position of the path
+     * @param length number of nodes of the path, e.g. 1, 2 or 3
+     * @param j position, that the path is inserted after,
+     *          out of the path and not just before it
+     * @return change of the cost, or {@link #INFEASIBLE}
+     */
+    public long orOptDelta(int i, int length, int j) {
+        int last = i + length - 1;
+        int p = order[before(i)];
+        int s = order[i];
+        int e = order[last];
+        int q = order[after(last)];
+        int a = order[j];
+        int b = order[after(j)];
+        if (graph.isRequired(p, s) || graph.isRequired(e, q) || graph.isRequired(a, b)) {
+            return INFEASIBLE;
+        }
+        long bridge = graph.getCost(p, q);
+        long enter = graph.getCost(a, s);
+        long leave = graph.getCost(e, b);
+        if (bridge < 0 || enter < 0 || leave < 0) {
+            return INFEASIBLE;
+        }
+        return bridge + enter + leave
+                - graph.getCost(p, s) - graph.getCost(e, q) - graph.getCost(a, b);
+    }
+
+    /**
+     * Swaps the nodes at the given positions.
+     *
+     * @param i position of the first node
+     * @param j position of the second node
+     * @return new cost of the route
+     */
+    public long swap(int i, int j) {
+        int node = order[i];
+        order[i] = order[j];
+        order[j] = node;
+        position[order[i]] = i;
+        position[order[j]] = j;
+        return evaluate();
+    }
+
+    /**
+     * Reverses the path between the positions {@code i + 1} and {@code j}.
+     *
+     * @param i position before the path
+     * @param j last position of the path, greater than {@code i}
+     * @return new cost of the route
+     */
+    public long twoOpt(int i, int j) {
+        for (int l = i + 1, r = j; l < r; ++ l, -- r) {
+            int node = order[l];
+            order[l] = order[r];
+            order[r] = node;
+            position[order[l]] = l;
+            position[order[r]] = r;
+        }
+        return evaluate();
+    }
+
+    /**
+     * Takes the path of the given length away and inserts it
+     * between the position {@code j} and the next one.
+     * The path must not wrap around the end of the route.
+     *
+     * @param i first position of the path
+     * @param length number of nodes of the path
+     * @param j position, that the path is inserted after
+     * @return new cost of the route
+     */
+    public long orOpt(int i, int length, int j) {
+        int[] path = new int[length];
+        System.arraycopy(order, i, path, 0, length);
+        if (j > i) {
+            // Nodes between the path and the insertion point move back
+            System.arraycopy(order, i + length, order, i, j - i - length + 1);
+            System.arraycopy(path, 0, order, j - length + 1, length);
+            for (int k = i; k <= j; ++ k) {
+                position[order[k]] = k;
+            }
+        } else {
+            // Nodes between the insertion point and the path move forward
+            System.arraycopy(order, j + 1, order, j + 1 + length, i - j - 1);
+            System.arraycopy(path, 0, order, j + 1, length);
+            for (int k = j + 1; k < i + length; ++ k) {
+                position[order[k]] = k;
+            }
+        }
+        return evaluate();
+    }
+
+    /**
+     * Creates the route, that starts at node 0, if it is in the route.
+     *
+     * @return route with the current order of nodes and its cost
+     */
+    public Route toRoute() {
+        int first = position[0] < size && order[position[0]] == 0 ? position[0] : 0;
+        int[] nodes = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            nodes[i] = order[(first + i) % size];
+        }
+        return new Route(cost, nodes);
+    }
+
+    /**
+     * Returns the position before the given one.
+     */
+    private int before(int i) {
+        return i == 0 ? size - 1 : i - 1;
+    }
+
+    /**
+     * Returns the position after the given one.
+     */
+    private int after(int i) {
+        return i + 1 == size ? 0 : i + 1;
+    }
+
+    /**
+     * Checks, whether the position is met before in the array.
+     */
+    private static boolean isCounted(int[] starts, int k) {
+        for (int l = 0; l < k; ++ l) {
+            if (starts[l] == starts[k]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,371 @@
+package com.galaev.tsp.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class {@code TwoLevelTour} represents a route as a two-level
+ * doubly-linked list, so local search may reverse paths
+ * of large routes quickly. Nodes are kept in an array, that is
+ * cut into segments of about {@code sqrt(n)} consecutive nodes.
+ * Segments form a circular doubly-linked list, and each
+ * of them may be traversed backwards, if its reversal bit is set.
+ * <p>
+ * Next and previous nodes and the order of three nodes are found
+ * in constant time, the order of segments is updated lazily.
+ * A path is reversed by cutting the segments at its ends
+ * and reversing the list of segments between the cuts,
+ * that takes {@code O(sqrt(n))} time. Cuts increase the number
+ * of segments, so the list is rebuilt from time to time, which
+ * takes {@code O(n)} time, but is amortised over many reversals.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Route
+ */
+public final class TwoLevelTour {
+
+    /* Number of nodes */
+    private final int size;
+
+    /* Nodes in the order of the array */
+    private final int[] order;
+
+    /* Position of each node in the array */
+    private final int[] position;
+
+    /* Segment of each node */
+    private final int[] parent;
+
+    /* Number of nodes in a segment after the rebuild */
+    private final int group;
+
+    /* Maximum number of segments, before the list is rebuilt */
+    private final int capacity;
+
+    /* Number of segments in use */
+    private int segments;
+
+    /* Bounds of segments in the array, inclusive */
+    private final int[] low;
+    private final int[] high;
+
+    /* Whether segments are traversed backwards */
+    private final boolean[] reversed;
+
+    /* Next and previous segments in the route */
+    private final int[] nextSegment;
+    private final int[] previousSegment;
+
+    /* Order of segments in the route, starting from any of them */
+    private final int[] rank;
+
+    /* Whether ranks are up to date */
+    private boolean ranked;
+
+    /**
+     * Public constructor.
+     * Creates a tour out of the route of nodes,
+     * e.g. {@link com.galaev.tsp.model.Route#getRoute()}.
+     * The start node may be repeated at the end of the route.
+     *
+     * @param route ordered list of all the node indexes
+     */
+    public TwoLevelTour(List<Integer> route) {
+        int count = route.size();
+        if (count > 1 && route.get(0).equals(route.get(count - 1))) {
+            -- count;
+        }
+        size = count;
+        order = new int[size];
+        position = new int[size];
+        parent = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            order[i] = route.get(i);
+        }
+        group = Math.max(8, (int) Math.sqrt(size));
+        int initial = (size + group - 1) / group;
+        capacity = 2 * initial + 4;
+        low = new int[capacity];
+        high = new int[capacity];
+        reversed = new boolean[capacity];
+        nextSegment = new int[capacity];
+        previousSegment = new int[capacity];
+        rank = new int[capacity];
+        build();
+    }
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the node, that follows the given one in the route.
+     *
+     * @param node node index
+     * @return index of the next node
+     */
+    public int next(int node) {
+        int s = parent[node];
+        int i = position[node];
+        if (reversed[s]) {
+            return i == low[s] ? first(nextSegment[s]) : order[i - 1];
+        }
+        return i == high[s] ? first(nextSegment[s]) : order[i + 1];
+    }
+
+    /**
+     * Returns the node, that precedes the given one in the route.
+     *
+     * @param node node index
+     * @return index of the previous node
+     */
+    public int previous(int node) {
+        int s = parent[node];
+        int i = position[node];
+        if (reversed[s]) {
+            return i == high[s] ? last(previousSegment[s]) : order[i + 1];
+        }
+        return i == low[s] ? last(previousSegment[s]) : order[i - 1];
+    }
+
+    /**
+     * Checks, whether the node {@code b} is met on the way
+     * from the node {@code a} to the node {@code c} along the route.
+     * Ends of the way are included.
+     *
+     * @param a start node index
+     * @param b node index to check
+     * @param c end node index
+     * @return true, if {@code b} is between {@code a} and {@code c}
+     */
+    public boolean between(int a, int b, int c) {
+        if (! ranked) {
+            renumber(parent[a]);
+        }
+        long pa = key(a);
+        long pb = key(b);
+        long pc = key(c);
+        if (pa <= pc) {
+            return pa <= pb && pb <= pc;
+        }
+        return pb >= pa || pb <= pc;
+    }
+
+    /**
+     * Reverses the path from the node {@code a} to the node {@code c}
+     * along the route, so the node before {@code a} is followed by
+     * {@code c}, and {@code a} is followed by the node after {@code c}.
+     *
+     * @param a first node of the path
+     * @param c last node of the path
+     */
+    public void reverse(int a, int c) {
+        if (a == c) {
+            return;
+        }
+        if (segments + 2 > capacity) {
+            build();
+        }
+        cutBefore(a);
+        cutBefore(next(c));
+        int from = parent[a];
+        int to = parent[c];
+        int before = previousSegment[from];
+        int after = nextSegment[to];
+        if (before == to) {
+            // The path is the whole route
+            int s = from;
+            do {
+                int next = nextSegment[s];
+                nextSegment[s] = previousSegment[s];
+                previousSegment[s] = next;
+                reversed[s] = ! reversed[s];
+                s = next;
+            } while (s != from);
+            ranked = false;
+            return;
+        }
+        // Reversing the list of segments between the cuts
+        int s = from;
+        while (true) {
+            int next = nextSegment[s];
+            nextSegment[s] = previousSegment[s];
+            previousSegment[s] = next;
+            reversed[s] = ! reversed[s];
+            if (s == to) {
+                break;
+            }
+            s = next;
+        }
+        nextSegment[before] = to;
+        previousSegment[to] = before;
+        nextSegment[from] = after;
+        previousSegment[after] = from;
+        ranked = false;
+    }
+
+    /**
+     * Returns the nodes of the route, starting from the given node.
+     *
+     * @param start start node index
+     * @return nodes in order
+     */
+    public int[] toArray(int start) {
+        int[] result = new int[size];
+        int node = start;
+        for (int i = 0; i < size; ++ i) {
+            result[i] = node;
+            node = next(node);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the route as a list of nodes, in the form of
+     * {@link com.galaev.tsp.model.Route#getRoute()}: it starts
+     * from node 0 and ends with node 0.
+     *
+     * @return ordered list of node indexes
+     */
+    public List<Integer> toRoute() {
+        List<Integer> route = new ArrayList<>(size + 1);
+        for (int node : toArray(0)) {
+            route.add(node);
+        }
+        route.add(0);
+        return route;
+    }
+
+    /**
+     * Returns the transitions of the route, starting from node 0,
+     * e.g. to create a {@link com.galaev.tsp.model.Route}.
+     *
+     * @return list of transitions
+     */
+    public List<Transition> toTransitions() {
+        List<Transition> transitions = new ArrayList<>(size);
+        int node = 0;
+        for (int i = 0; i < size; ++ i) {
+            int next = next(node);
+            transitions.add(new Transition(node, next));
+            node = next;
+        }
+        return transitions;
+    }
+
+    /**
+     * Returns the first node of the segment along the route.
+     */
+    private int first(int s) {
+        return reversed[s] ? order[high[s]] : order[low[s]];
+    }
+
+    /**
+     * Returns the last node of the segment along the route.
+     */
+    private int last(int s) {
+        return reversed[s] ? order[low[s]] : order[high[s]];
+    }
+
+    /**
+     * Returns the key of the node, that grows along
+     * the route from the segment of rank 0.
+     */
+    private long key(int node) {
+        int s = parent[node];
+        int i = position[node];
+        return ((long) rank[s] << 32) + (reversed[s] ? size - i : i);
+    }
+
+    /**
+     * Cuts the segment of the node, so the node
+     * becomes the first one of its segment.
+     * The smaller part of the segment goes to a new one.
+     *
+     * @param node node index
+     */
+    private void cutBefore(int node) {
+        int s = parent[node];
+        if (first(s) == node) {
+            return;
+        }
+        // Cut in the array is between 'left' and 'left + 1'
+        int left = reversed[s] ? position[node] : position[node] - 1;
+        int t = segments++;
+        reversed[t] = reversed[s];
+        boolean moveLeft = left - low[s] < high[s] - left;
+        if (moveLeft) {
+            low[t] = low[s];
+            high[t] = left;
+            low[s] = left + 1;
+        } else {
+            low[t] = left + 1;
+            high[t] = high[s];
+            high[s] = left;
+        }
+        for (int i = low[t]; i <= high[t]; ++ i) {
+            parent[order[i]] = t;
+        }
+        // The left part of the array goes first, unless the segment is reversed
+        if (moveLeft != reversed[s]) {
+            int before = previousSegment[s];
+            nextSegment[before] = t;
+            previousSegment[t] = before;
+            nextSegment[t] = s;
+            previousSegment[s] = t;
+        } else {
+            int after = nextSegment[s];
+            nextSegment[s] = t;
+            previousSegment[t] = s;
+            nextSegment[t] = after;
+            previousSegment[after] = t;
+        }
+        ranked = false;
+    }
+
+    /**
+     * Numbers the segments along the route.
+     *
+     * @param start segment, that gets rank 0
+     */
+    private void renumber(int start) {
+        int r = 0;
+        for (int s = start; ; s = nextSegment[s]) {
+            rank[s] = r++;
+            if (nextSegment[s] == start) {
+                break;
+            }
+        }
+        ranked = true;
+    }
+
+    /**
+     * Rebuilds the segments of equal size out of the current route.
+     */
+    private void build() {
+        if (segments > 0) {
+            int[] nodes = toArray(order[0]);
+            System.arraycopy(nodes, 0, order, 0, size);
+        }
+        segments = (size + group - 1) / group;
+        Arrays.fill(reversed, false);
+        for (int s = 0; s < segments; ++ s) {
+            low[s] = s * group;
+            high[s] = Math.min(size, (s + 1) * group) - 1;
+            nextSegment[s] = (s + 1) % segments;
+            previousSegment[s] = (s + segments - 1) % segments;
+            rank[s] = s;
+        }
+        ranked = true;
+        for (int i = 0; i < size; ++ i) {
+            position[order[i]] = i;
+            parent[order[i]] = i / group;
+        }
+    }
+}
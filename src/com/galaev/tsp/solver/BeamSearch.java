@@ -0,0 +1,933 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code BeamSearch} provides restricted dynamic programming
+ * to solve the Travelling Salesman Problem approximately.
+ * Routes are built from the start node a node at a time,
+ * going to one of the nearest unvisited neighbours of the last node.
+ * A partial route is a state, that is identified by its last node
+ * and the set of visited nodes, so of all the partial routes with
+ * the same state only the cheapest one is kept, as in exact
+ * dynamic programming. Unlike exact dynamic programming,
+ * only the given number of the cheapest states are kept on
+ * each layer, so time and memory are bounded by the width.
+ * <p>
+ * On sparse graphs a partial route easily leaves a node, that cannot
+ * be entered or left anymore. So a state is not kept, if an unvisited
+ * node of small degree next to its last transition has no way in
+ * or no way out left, or if it shares the only way in or the only
+ * way out, that is left, with another node.
+ * <p>
+ * Each layer is expanded in parallel by blocks of states.
+ * Then duplicate states are merged in parallel by shards of
+ * their hashes in open addressing tables of primitive indices.
+ * Visited sets are hashed incrementally: the hash of a set
+ * is the exclusive or of random keys of its nodes.
+ * The result is the same for any number of threads.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ */
+public class BeamSearch implements Engine {
+
+    /** Default number of states, that are kept on each layer */
+    public static final int DEFAULT_WIDTH = 1000;
+
+    /** Number of states, that are expanded by a single thread */
+    private static final int BLOCK = 32;
+
+    /** Number of the nearest neighbours, that each node is kept sorted by cost */
+    private static final int NEAREST = 32;
+
+    /** Maximum degree of a node, that is checked for a way in and a way out */
+    private static final int SPARSE = 32;
+
+    /** Result of the search for the only way: there is no way */
+    private static final int NONE = -1;
+
+    /** Result of the search for the only way: there are several ways */
+    private static final int MANY = -2;
+
+    /** Number of unvisited nearest neighbours, that each state is expanded to */
+    private static final int EXPANSIONS = 10;
+
+    /** Number of shards of hashes, that are merged by different threads */
+    private static final int SHARDS = 16;
+
+    /** Number of bits, that the hash is shifted by to get its shard */
+    private static final int SHARD_SHIFT = 60;
+
+    /** Pool of threads for parallel expansion */
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    /* Number of states, that are kept on each layer */
+    private final int width;
+
+    /**
+     * Public constructor.
+     * Creates the engine with the default width.
+     */
+    public BeamSearch() {
+        this(DEFAULT_WIDTH);
+    }
+
+    /**
+     * Public constructor.
+     * Wider search gives better routes, but takes
+     * proportionally more time and memory.
+     *
+     * @param width number of states, that are kept on each layer
+     */
+    public BeamSearch(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Width must be positive");
+        }
+        this.width = width;
+    }
+
+    /**
+     * Getter for the width.
+     *
+     * @return number of states, that are kept on each layer
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * A method for processing the input graph.
+     * The search is heuristic, so the route is
+     * not necessarily the best one. If all the states
+     * happen to be dead ends, no route is found, even
+     * if there is one. The search stops with no route,
+     * when the thread is interrupted.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    @Override
+    public Route process(Graph graph) {
+        int size = graph.getSize();
+        if (size < 3) {
+            return Solver.getInstance().process(graph);
+        }
+        Search search = new Search(graph);
+        // Last nodes and parents of all layers
+        Layer layer = Layer.root(size);
+        int[][] nodes = new int[size][];
+        int[][] parents = new int[size][];
+        nodes[0] = layer.nodes;
+        parents[0] = new int[] { -1 };
+        for (int depth = 1; depth < size && layer.count > 0; ++ depth) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            layer = search.expand(layer);
+            nodes[depth] = layer.nodes;
+            parents[depth] = layer.parents;
+        }
+        // Closing the route
+        int best = -1;
+        long bestCost = Long.MAX_VALUE;
+        for (int s = 0; s < layer.count; ++ s) {
+            int last = layer.nodes[s];
+            long value = graph.getCost(last, 0);
+            if (value >= 0 && search.isAllowed(last, 0) && layer.costs[s] + value < bestCost) {
+                best = s;
+                bestCost = layer.costs[s] + value;
+            }
+        }
+        if (best == -1) {
+            return null;
+        }
+        // Walking back through the parents
+        int[] order = new int[size];
+        for (int depth = size - 1, s = best; depth >= 0; -- depth) {
+            order[depth] = nodes[depth][s];
+            s = parents[depth][s];
+        }
+        List<Transition> transitions = new ArrayList<>(size);
+        for (int i = 0; i < size; ++ i) {
+            transitions.add(new Transition(order[i], order[(i + 1) % size]));
+        }
+        return new Route(bestCost, transitions);
+    }
+
+    /**
+     * States of a single layer. States are indexed from 0 to {@code count}.
+     */
+    private static class Layer {
+
+        /* Number of states */
+        private final int count;
+
+        /* Last nodes of states */
+        private final int[] nodes;
+
+        /* Costs of partial routes */
+        private final long[] costs;
+
+        /* Indices of parent states in the previous layer */
+        private final int[] parents;
+
+        /* Visited sets, {@code words} long integers per state */
+        private final long[] sets;
+
+        /* Hashes of visited sets */
+        private final long[] hashes;
+
+        /**
+         * Package-private constructor.
+         */
+        Layer(int count, int words) {
+            this.count = count;
+            nodes = new int[count];
+            costs = new long[count];
+            parents = new int[count];
+            sets = new long[count * words];
+            hashes = new long[count];
+        }
+
+        /**
+         * Creates the first layer, that has the only state:
+         * the route at the start node.
+         *
+         * @param size number of nodes
+         * @return the first layer
+         */
+        static Layer root(int size) {
+            Layer layer = new Layer(1, (size + 63) >>> 6);
+            layer.sets[0] = 1;
+            layer.parents[0] = -1;
+            return layer;
+        }
+    }
+
+    /**
+     * Candidate states, that are produced by expansion
+     * of a block of states.
+     */
+    private static class Candidates {
+
+        /* Number of candidates */
+        private int count;
+
+        /* Parent states, last nodes, costs and hashes of visited sets */
+        private int[] parents = new int[BLOCK];
+        private int[] nodes = new int[BLOCK];
+        private long[] costs = new long[BLOCK];
+        private long[] hashes = new long[BLOCK];
+
+        /**
+         * Adds a candidate.
+         */
+        void add(int parent, int node, long cost, long hash) {
+            if (count == parents.length) {
+                int length = count * 2;
+                parents = Arrays.copyOf(parents, length);
+                nodes = Arrays.copyOf(nodes, length);
+                costs = Arrays.copyOf(costs, length);
+                hashes = Arrays.copyOf(hashes, length);
+            }
+            parents[count] = parent;
+            nodes[count] = node;
+            costs[count] = cost;
+            hashes[count] = hash;
+            ++ count;
+        }
+    }
+
+    /**
+     * State of a single search: the graph and
+     * the structures, that are shared by all layers.
+     */
+    private class Search {
+
+        /* The graph to solve */
+        private final Graph graph;
+
+        /* Number of nodes */
+        private final int size;
+
+        /* Number of long integers in a visited set */
+        private final int words;
+
+        /* Random keys of nodes for hashing of visited sets */
+        private final long[] keys;
+
+        /* Indices of the nearest neighbours of each node, cheaper first */
+        private final int[][] nearest;
+
+        /* Required next node and previous node of each node, or -1 */
+        private final int[] next;
+        private final int[] previous;
+
+        /* Nodes, that each node may be entered from, or null, if there are many */
+        private final int[][] entries;
+
+        /* Candidates of the layer, that is being expanded */
+        private int[] parents;
+        private int[] nodes;
+        private long[] costs;
+        private long[] hashes;
+
+        /* Keys of candidate states for hash tables */
+        private long[] stateKeys;
+
+        /* Candidates, grouped by shards, and the start of each shard */
+        private int[] shardOrder;
+        private final int[] shardStart = new int[SHARDS + 1];
+
+        /**
+         * Package-private constructor.
+         *
+         * @param graph the graph to solve
+         */
+        Search(Graph graph) {
+            this.graph = graph;
+            size = graph.getSize();
+            words = (size + 63) >>> 6;
+            keys = new long[size];
+            Random random = new Random(size);
+            for (int i = 0; i < size; ++ i) {
+                keys[i] = random.nextLong();
+            }
+            next = new int[size];
+            previous = new int[size];
+            nearest = new int[size][];
+            for (int i = 0; i < size; ++ i) {
+                nearest[i] = nearest(i);
+            }
+            Arrays.fill(next, -1);
+            Arrays.fill(previous, -1);
+            for (Transition transition : graph.getRequired()) {
+                next[transition.getFrom()] = transition.getTo();
+                previous[transition.getTo()] = transition.getFrom();
+            }
+            entries = entries();
+        }
+
+        /**
+         * Finds the nodes, that each node of small
+         * in-degree may be entered from.
+         *
+         * @return nodes, that each node may be entered from,
+         *         or null for nodes of large in-degree
+         */
+        private int[][] entries() {
+            int[] degree = new int[size];
+            for (int i = 0; i < size; ++ i) {
+                for (int k = 0; k < graph.getDegree(i); ++ k) {
+                    if (graph.getNeighbourCost(i, k) >= 0) {
+                        ++ degree[graph.getNeighbour(i, k)];
+                    }
+                }
+            }
+            int[][] result = new int[size][];
+            for (int j = 0; j < size; ++ j) {
+                if (degree[j] <= SPARSE) {
+                    result[j] = new int[degree[j]];
+                    degree[j] = 0;
+                }
+            }
+            for (int i = 0; i < size; ++ i) {
+                for (int k = 0; k < graph.getDegree(i); ++ k) {
+                    int j = graph.getNeighbour(i, k);
+                    if (graph.getNeighbourCost(i, k) >= 0 && result[j] != null) {
+                        result[j][degree[j]++] = i;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Checks, whether the transition does not
+         * contradict required transitions.
+         *
+         * @param from start node index
+         * @param to end node index
+         * @return true, if the transition may be in the route
+         */
+        boolean isAllowed(int from, int to) {
+            return (next[from] == -1 || next[from] == to) &&
+                   (previous[to] == -1 || previous[to] == from);
+        }
+
+        /**
+         * Builds the next layer out of the given one.
+         *
+         * @param layer the last layer
+         * @return the next layer, that may be empty
+         */
+        Layer expand(Layer layer) {
+            // Expanding states
+            Candidates[] blocks = new Candidates[(layer.count + BLOCK - 1) / BLOCK];
+            Expansion expansion = new Expansion(this, layer, blocks, 0, blocks.length);
+            if (blocks.length == 1) {
+                expansion.compute();
+            } else {
+                pool.invoke(expansion);
+            }
+            int total = 0;
+            for (Candidates block : blocks) {
+                total += block.count;
+            }
+            parents = new int[total];
+            nodes = new int[total];
+            costs = new long[total];
+            hashes = new long[total];
+            int offset = 0;
+            for (Candidates block : blocks) {
+                System.arraycopy(block.parents, 0, parents, offset, block.count);
+                System.arraycopy(block.nodes, 0, nodes, offset, block.count);
+                System.arraycopy(block.costs, 0, costs, offset, block.count);
+                System.arraycopy(block.hashes, 0, hashes, offset, block.count);
+                offset += block.count;
+            }
+            stateKeys = new long[total];
+            Arrays.fill(shardStart, 0);
+            for (int c = 0; c < total; ++ c) {
+                stateKeys[c] = key(c);
+                ++ shardStart[(int) (stateKeys[c] >>> SHARD_SHIFT) + 1];
+            }
+            for (int shard = 0; shard < SHARDS; ++ shard) {
+                shardStart[shard + 1] += shardStart[shard];
+            }
+            shardOrder = new int[total];
+            int[] position = Arrays.copyOf(shardStart, SHARDS);
+            for (int c = 0; c < total; ++ c) {
+                shardOrder[position[(int) (stateKeys[c] >>> SHARD_SHIFT)]++] = c;
+            }
+            // Merging duplicate states
+            int[][] shards = new int[SHARDS][];
+            if (total < BLOCK * BLOCK) {
+                for (int shard = 0; shard < SHARDS; ++ shard) {
+                    shards[shard] = merge(layer, shard);
+                }
+            } else {
+                pool.invoke(new Merge(this, layer, shards, 0, SHARDS));
+            }
+            int count = 0;
+            for (int[] shard : shards) {
+                count += shard[0];
+            }
+            int[] survivors = new int[count];
+            count = 0;
+            for (int[] shard : shards) {
+                System.arraycopy(shard, 1, survivors, count, shard[0]);
+                count += shard[0];
+            }
+            Arrays.sort(survivors);
+            return select(layer, survivors);
+        }
+
+        /**
+         * Finds the nearest neighbours of the node.
+         *
+         * @param node node index
+         * @return indices of the nearest neighbours, cheaper first
+         */
+        int[] nearest(int node) {
+            int[] result = new int[Math.min(NEAREST, graph.getDegree(node))];
+            int count = 0;
+            for (int k = 0; k < graph.getDegree(node); ++ k) {
+                long value = graph.getNeighbourCost(node, k);
+                if (value < 0 || (count == result.length &&
+                        value >= graph.getNeighbourCost(node, result[count - 1]))) {
+                    continue;
+                }
+                // Insertion into the sorted list
+                int i = count == result.length ? count - 1 : count++;
+                for (; i > 0 && graph.getNeighbourCost(node, result[i - 1]) > value; -- i) {
+                    result[i] = result[i - 1];
+                }
+                result[i] = k;
+            }
+            return Arrays.copyOf(result, count);
+        }
+
+        /**
+         * Expands a single state into candidates.
+         * The state goes to the nearest unvisited neighbours
+         * of its last node, or to all of the unvisited ones,
+         * if the nearest neighbours are visited already.
+         *
+         * @param layer the last layer
+         * @param s index of the state
+         * @param candidates candidates to add to
+         */
+        void expand(Layer layer, int s, Candidates candidates) {
+            int from = layer.nodes[s];
+            int found = 0;
+            for (int i = 0; i < nearest[from].length && found < EXPANSIONS; ++ i) {
+                if (expand(layer, s, nearest[from][i], candidates)) {
+                    ++ found;
+                }
+            }
+            if (found == 0 && nearest[from].length < graph.getDegree(from)) {
+                for (int k = 0; k < graph.getDegree(from); ++ k) {
+                    expand(layer, s, k, candidates);
+                }
+            }
+        }
+
+        /**
+         * Expands a single state to a neighbour of its last node,
+         * if the neighbour is not visited and the transition is allowed.
+         *
+         * @param layer the last layer
+         * @param s index of the state
+         * @param k index of the neighbour
+         * @param candidates candidates to add to
+         * @return true, if the candidate is added
+         */
+        boolean expand(Layer layer, int s, int k, Candidates candidates) {
+            int from = layer.nodes[s];
+            int to = graph.getNeighbour(from, k);
+            long value = graph.getNeighbourCost(from, k);
+            if (value >= 0 &&
+                    (layer.sets[s * words + (to >>> 6)] & (1L << to)) == 0 &&
+                    isAllowed(from, to) && isOpen(layer, s, from, to)) {
+                candidates.add(s, to, layer.costs[s] + value, layer.hashes[s] ^ keys[to]);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Checks, whether the state, that goes from its last node
+         * to the given one, leaves a way in to each node, that the last
+         * node might go to, and a way out of each node, that might
+         * go to the given one, and whether the only way left is not
+         * the only one of another node too. Nodes of large degree
+         * are not checked. The route is closed by a transition
+         * to the start node, so it is entered last and may be left to.
+         *
+         * @param layer the last layer
+         * @param s index of the state
+         * @param from last node of the state
+         * @param to next node
+         * @return true, if no node is cut off
+         */
+        boolean isOpen(Layer layer, int s, int from, int to) {
+            if (graph.getDegree(from) <= SPARSE) {
+                for (int k = 0; k < graph.getDegree(from); ++ k) {
+                    int node = graph.getNeighbour(from, k);
+                    if (node == to || graph.getNeighbourCost(from, k) < 0 ||
+                            node != 0 && isVisited(layer, s, node)) {
+                        continue;
+                    }
+                    int entry = onlyWayIn(layer, s, node);
+                    if (entry == NONE || entry != MANY && isEntryShared(layer, s, node, entry, to)) {
+                        return false;
+                    }
+                }
+            }
+            if (entries[to] != null) {
+                for (int node : entries[to]) {
+                    if (isVisited(layer, s, node)) {
+                        continue;
+                    }
+                    int exit = onlyWayOut(layer, s, node, to);
+                    if (exit == NONE || exit != MANY && isExitShared(layer, s, node, exit, to)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Finds the only unvisited node, that the node may be entered from.
+         * The next node of the state is not visited yet.
+         *
+         * @return the only node, {@link #NONE} or {@link #MANY}
+         */
+        private int onlyWayIn(Layer layer, int s, int node) {
+            if (previous[node] != -1) {
+                return isVisited(layer, s, previous[node]) ? NONE : previous[node];
+            }
+            if (entries[node] == null) {
+                return MANY;
+            }
+            int result = NONE;
+            for (int entry : entries[node]) {
+                if (! isVisited(layer, s, entry)) {
+                    if (result != NONE) {
+                        return MANY;
+                    }
+                    result = entry;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Finds the only node, that the node may be left to: an unvisited
+         * node other than the next node of the state, or the start node.
+         *
+         * @return the only node, {@link #NONE} or {@link #MANY}
+         */
+        private int onlyWayOut(Layer layer, int s, int node, int to) {
+            if (next[node] != -1) {
+                int exit = next[node];
+                return exit != to && (exit == 0 || ! isVisited(layer, s, exit)) ? exit : NONE;
+            }
+            if (graph.getDegree(node) > SPARSE) {
+                return MANY;
+            }
+            int result = NONE;
+            for (int k = 0; k < graph.getDegree(node); ++ k) {
+                int exit = graph.getNeighbour(node, k);
+                if (exit != to && graph.getNeighbourCost(node, k) >= 0 &&
+                        (exit == 0 || ! isVisited(layer, s, exit))) {
+                    if (result != NONE) {
+                        return MANY;
+                    }
+                    result = exit;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Checks, whether another node, that is not entered yet,
+         * may be entered only from the same node.
+         */
+        private boolean isEntryShared(Layer layer, int s, int node, int entry, int to) {
+            if (graph.getDegree(entry) > SPARSE) {
+                return false;
+            }
+            for (int k = 0; k < graph.getDegree(entry); ++ k) {
+                int other = graph.getNeighbour(entry, k);
+                if (other != node && other != to && graph.getNeighbourCost(entry, k) >= 0 &&
+                        (other == 0 || ! isVisited(layer, s, other)) && onlyWayIn(layer, s, other) == entry) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks, whether another unvisited node
+         * may be left only to the same node.
+         */
+        private boolean isExitShared(Layer layer, int s, int node, int exit, int to) {
+            if (entries[exit] == null) {
+                return false;
+            }
+            for (int other : entries[exit]) {
+                if (other != node && other != to && ! isVisited(layer, s, other) &&
+                        onlyWayOut(layer, s, other, to) == exit) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks, whether the node is in the visited set of the state.
+         */
+        private boolean isVisited(Layer layer, int s, int node) {
+            return (layer.sets[s * words + (node >>> 6)] & (1L << node)) != 0;
+        }
+
+        /**
+         * Merges candidates with the same state of the given shard.
+         * Of the same states the cheapest one is kept.
+         *
+         * @param layer the last layer
+         * @param shard index of the shard
+         * @return number of survivors, followed by their indices
+         */
+        int[] merge(Layer layer, int shard) {
+            StateTable table = new StateTable();
+            for (int i = shardStart[shard]; i < shardStart[shard + 1]; ++ i) {
+                int c = shardOrder[i];
+                long key = stateKeys[c];
+                int slot = table.find(key, c, this, layer);
+                if (slot == -1) {
+                    table.add(key, c);
+                } else if (costs[c] < costs[table.get(slot)]) {
+                    table.set(slot, c);
+                }
+            }
+            return table.toArray();
+        }
+
+        /**
+         * Returns the key of the candidate state,
+         * that takes the last node into account.
+         *
+         * @param c index of the candidate
+         * @return key of the state
+         */
+        long key(int c) {
+            long key = (hashes[c] ^ nodes[c]) * 0x9E3779B97F4A7C15L;
+            return key ^ (key >>> 29);
+        }
+
+        /**
+         * Checks, whether two candidates represent the same state.
+         * The last nodes are not in the visited sets of the
+         * parents, so the sets are the same, if the parents' are.
+         *
+         * @param a index of the first candidate
+         * @param b index of the second candidate
+         * @param layer the last layer
+         * @return true, if the states are the same
+         */
+        boolean isSame(int a, int b, Layer layer) {
+            if (nodes[a] != nodes[b] || hashes[a] != hashes[b]) {
+                return false;
+            }
+            int x = parents[a] * words;
+            int y = parents[b] * words;
+            for (int w = 0; w < words; ++ w) {
+                if (layer.sets[x + w] != layer.sets[y + w]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Keeps the cheapest of the survivors,
+         * in the order of their indices.
+         *
+         * @param layer the last layer
+         * @param survivors indices of distinct candidates, in ascending order
+         * @return the next layer
+         */
+        Layer select(Layer layer, int[] survivors) {
+            int count = Math.min(width, survivors.length);
+            long threshold = Long.MAX_VALUE;
+            if (survivors.length > width) {
+                long[] sorted = new long[survivors.length];
+                for (int i = 0; i < survivors.length; ++ i) {
+                    sorted[i] = costs[survivors[i]];
+                }
+                Arrays.sort(sorted);
+                threshold = sorted[width - 1];
+            }
+            // Cheaper states first, then the states of the threshold cost
+            int[] kept = new int[count];
+            int k = 0;
+            for (int c : survivors) {
+                if (costs[c] < threshold) {
+                    kept[k++] = c;
+                }
+            }
+            for (int i = 0; i < survivors.length && k < count; ++ i) {
+                if (costs[survivors[i]] == threshold) {
+                    kept[k++] = survivors[i];
+                }
+            }
+            Arrays.sort(kept);
+            Layer result = new Layer(count, words);
+            for (int s = 0; s < count; ++ s) {
+                int c = kept[s];
+                int node = nodes[c];
+                result.nodes[s] = node;
+                result.costs[s] = costs[c];
+                result.parents[s] = parents[c];
+                result.hashes[s] = hashes[c];
+                System.arraycopy(layer.sets, parents[c] * words, result.sets, s * words, words);
+                result.sets[s * words + (node >>> 6)] |= 1L << node;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Open addressing hash table of candidate indices.
+     */
+    private static class StateTable {
+
+        /* Slots, that contain a candidate index plus one, or zero */
+        private int[] slots = new int[64];
+
+        /* Keys of the candidates in the slots */
+        private long[] keys = new long[64];
+
+        /* Number of candidates */
+        private int count;
+
+        /**
+         * Finds the slot of the candidate with the same state.
+         *
+         * @return index of the slot, or -1, if there is no such candidate
+         */
+        int find(long key, int c, Search search, Layer layer) {
+            int mask = slots.length - 1;
+            for (int i = (int) key & mask; slots[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key && search.isSame(slots[i] - 1, c, layer)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the candidate in the slot.
+         */
+        int get(int slot) {
+            return slots[slot] - 1;
+        }
+
+        /**
+         * Replaces the candidate in the slot with a cheaper one of the same state.
+         */
+        void set(int slot, int c) {
+            slots[slot] = c + 1;
+        }
+
+        /**
+         * Adds the candidate, that has a new state.
+         */
+        void add(long key, int c) {
+            if (2 * (count + 1) > slots.length) {
+                grow();
+            }
+            insert(key, c);
+            ++ count;
+        }
+
+        /**
+         * Returns the number of candidates, followed by their indices.
+         */
+        int[] toArray() {
+            int[] result = new int[count + 1];
+            result[0] = count;
+            int k = 1;
+            for (int slot : slots) {
+                if (slot != 0) {
+                    result[k++] = slot - 1;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Inserts the candidate into a free slot.
+         */
+        private void insert(long key, int c) {
+            int mask = slots.length - 1;
+            int i = (int) key & mask;
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = c + 1;
+            keys[i] = key;
+        }
+
+        /**
+         * Doubles the number of slots.
+         */
+        private void grow() {
+            int[] oldSlots = slots;
+            long[] oldKeys = keys;
+            slots = new int[oldSlots.length * 2];
+            keys = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldSlots.length; ++ i) {
+                if (oldSlots[i] != 0) {
+                    insert(oldKeys[i], oldSlots[i] - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parallel task, that expands blocks of states.
+     */
+    private static class Expansion extends RecursiveAction {
+
+        /* Task parameters */
+        private final Search search;
+        private final Layer layer;
+        private final Candidates[] blocks;
+        private final int from;
+        private final int to;
+
+        /**
+         * Package-private constructor.
+         */
+        Expansion(Search search, Layer layer, Candidates[] blocks, int from, int to) {
+            this.search = search;
+            this.layer = layer;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Expands the block or splits the range in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                Candidates candidates = new Candidates();
+                int last = Math.min(layer.count, to * BLOCK);
+                for (int s = from * BLOCK; s < last; ++ s) {
+                    search.expand(layer, s, candidates);
+                }
+                blocks[from] = candidates;
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Expansion(search, layer, blocks, from, middle),
+                      new Expansion(search, layer, blocks, middle, to));
+        }
+    }
+
+    /**
+     * Parallel task, that merges duplicate states of shards.
+     */
+    private static class Merge extends RecursiveAction {
+
+        /* Task parameters */
+        private final Search search;
+        private final Layer layer;
+        private final int[][] shards;
+        private final int from;
+        private final int to;
+
+        /**
+         * Package-private constructor.
+         */
+        Merge(Search search, Layer layer, int[][] shards, int from, int to) {
+            this.search = search;
+            this.layer = layer;
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Merges the shard or splits the range in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                shards[from] = search.merge(layer, from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Merge(search, layer, shards, from, middle),
+                      new Merge(search, layer, shards, middle, to));
+        }
+    }
+}
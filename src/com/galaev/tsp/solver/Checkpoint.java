@@ -0,0 +1,403 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Class {@code Checkpoint} saves the state of a long branch & bound
+ * search to a file from time to time, so the search may be resumed
+ * after a restart, possibly by another JVM. The state consists
+ * of the best route found so far, the counters of the search and
+ * the waiting subproblems. A subproblem is saved compactly as its
+ * route and the transitions, that were excluded from it by branching,
+ * and it is restored by replaying them on the instance.
+ * <p>
+ * The search only collects the state, the file is written by a
+ * background thread into a temporary file, that replaces the
+ * checkpoint, when it is complete, so a crash never leaves
+ * a broken checkpoint. The file is compressed binary data.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Solver
+ */
+public final class Checkpoint {
+
+    /** Default interval between checkpoints in milliseconds */
+    public static final long DEFAULT_INTERVAL = 60000;
+
+    /** Tag at the start of a checkpoint file */
+    private static final int MAGIC = 0x54535043;
+
+    /** Version of the file format */
+    private static final int VERSION = 1;
+
+    /** Thread, that writes checkpoints, and does not keep the application alive */
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /* Checkpoint file */
+    private final File file;
+
+    /* Interval between checkpoints in milliseconds */
+    private final long interval;
+
+    /* Time of the last checkpoint */
+    private long last = System.currentTimeMillis();
+
+    /* Checkpoint, that is being written */
+    private Future<?> pending;
+
+    /* Error of the last write, or null */
+    private volatile IOException error;
+
+    /* Counters of the last saved or loaded state */
+    private volatile long explored;
+    private volatile long elapsed;
+
+    /**
+     * Public constructor.
+     * Checkpoints are saved with the default interval.
+     *
+     * @param file checkpoint file
+     */
+    public Checkpoint(File file) {
+        this(file, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param file checkpoint file
+     * @param interval interval between checkpoints in milliseconds
+     */
+    public Checkpoint(File file, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        this.file = file;
+        this.interval = interval;
+    }
+
+    /**
+     * Getter for the checkpoint file.
+     *
+     * @return checkpoint file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Checks, whether there is a checkpoint to resume from.
+     *
+     * @return true, if the checkpoint file exists
+     */
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /**
+     * Getter for the error of the last write.
+     * Errors do not stop the search.
+     *
+     * @return error or null, if the last write succeeded
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Getter for the number of subproblems explored
+     * by the search, including all the previous runs.
+     *
+     * @return number of subproblems at the last checkpoint
+     */
+    public long getExplored() {
+        return explored;
+    }
+
+    /**
+     * Getter for the time of the search,
+     * including all the previous runs.
+     *
+     * @return milliseconds at the last checkpoint
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Checks, whether the interval is over since the last checkpoint.
+     *
+     * @return true, if it is time to save a checkpoint
+     */
+    boolean isDue() {
+        return System.currentTimeMillis() - last >= interval;
+    }
+
+    /**
+     * Saves the state in the background. If the previous state
+     * is still being written, this one is skipped,
+     * so the search never waits for the disk.
+     *
+     * @param state state of the search
+     */
+    synchronized void save(final State state) {
+        last = System.currentTimeMillis();
+        if (pending != null && ! pending.isDone()) {
+            return;
+        }
+        pending = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                write(state);
+            }
+        });
+    }
+
+    /**
+     * Saves the state and waits, until it is written,
+     * e.g. when the search is interrupted.
+     *
+     * @param state state of the search
+     */
+    synchronized void saveNow(State state) {
+        await();
+        last = System.currentTimeMillis();
+        write(state);
+    }
+
+    /**
+     * Deletes the checkpoint, when the search is over.
+     */
+    synchronized void delete() {
+        await();
+        if (file.exists() && ! file.delete()) {
+            error = new IOException("Cannot delete " + file);
+        }
+    }
+
+    /**
+     * Loads the state of the search of the graph.
+     *
+     * @param graph input graph
+     * @return saved state
+     * @throws IllegalStateException if the checkpoint cannot be read,
+     *         or it belongs to another graph
+     */
+    State load(Graph graph) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IllegalStateException(file + " is not a checkpoint");
+            }
+            int size = in.readInt();
+            long hash = in.readLong();
+            if (size != graph.getSize() || hash != fingerprint(graph)) {
+                throw new IllegalStateException(file + " belongs to another instance");
+            }
+            long loadedExplored = in.readLong();
+            long loadedElapsed = in.readLong();
+            long cost = in.readLong();
+            int[] route = readInts(in);
+            int count = in.readInt();
+            List<Record> records = new ArrayList<>(count);
+            for (int i = 0; i < count; ++ i) {
+                long bound = in.readLong();
+                records.add(new Record(bound, readInts(in), readInts(in)));
+            }
+            explored = loadedExplored;
+            elapsed = loadedElapsed;
+            Route best = route.length > 0 ? new Route(cost, route) : null;
+            return new State(size, hash, best, loadedExplored, loadedElapsed, records);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + file, e);
+        }
+    }
+
+    /**
+     * Computes the hash of the size, the costs and the required
+     * transitions of the graph, so a checkpoint is never resumed
+     * on another instance.
+     *
+     * @param graph input graph
+     * @return hash of the graph
+     */
+    static long fingerprint(Graph graph) {
+        int size = graph.getSize();
+        long hash = size;
+        for (int i = 0; i < size; ++ i) {
+            for (int j = 0; j < size; ++ j) {
+                hash = hash * 1000003 + graph.getCost(i, j);
+            }
+        }
+        for (Transition transition : graph.getRequired()) {
+            hash = hash * 1000003 + transition.getFrom() * size + transition.getTo();
+        }
+        return hash;
+    }
+
+    /**
+     * Waits for the checkpoint, that is being written.
+     */
+    private void await() {
+        if (pending == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pending.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the state to the temporary file,
+     * then replaces the checkpoint with it.
+     *
+     * @param state state of the search
+     */
+    private void write(State state) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(state.size);
+                out.writeLong(state.fingerprint);
+                out.writeLong(state.explored);
+                out.writeLong(state.elapsed);
+                Route best = state.best;
+                out.writeLong(best == null ? -1 : best.getCost());
+                writeInts(out, best == null ? new int[0] : best.toArray());
+                out.writeInt(state.records.size());
+                for (Record record : state.records) {
+                    out.writeLong(record.bound);
+                    writeInts(out, record.path);
+                    writeInts(out, record.excluded);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            explored = state.explored;
+            elapsed = state.elapsed;
+            error = null;
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Writes the array with its length.
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the array, written by {@link #writeInts(java.io.DataOutputStream, int[])}.
+     */
+    private static int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; ++ i) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Saved subproblem: its bound, its route as {@code from, to}
+     * pairs and its excluded transitions as {@code from, to} pairs.
+     * Records are ordered by their bounds, like subproblems.
+     */
+    static final class Record implements Comparable<Record> {
+
+        /* Record fields */
+        final long bound;
+        final int[] path;
+        final int[] excluded;
+
+        /**
+         * Package-private constructor.
+         */
+        Record(long bound, int[] path, int[] excluded) {
+            this.bound = bound;
+            this.path = path;
+            this.excluded = excluded;
+        }
+
+        /**
+         * Compares this record to another by their bounds.
+         */
+        @Override
+        public int compareTo(Record o) {
+            return Long.compare(this.bound, o.bound);
+        }
+    }
+
+    /**
+     * State of the search.
+     */
+    static final class State {
+
+        /* State fields */
+        final int size;
+        final long fingerprint;
+        final Route best;
+        final long explored;
+        final long elapsed;
+        final List<Record> records;
+
+        /**
+         * Package-private constructor.
+         */
+        State(int size, long fingerprint, Route best, long explored, long elapsed, List<Record> records) {
+            this.size = size;
+            this.fingerprint = fingerprint;
+            this.best = best;
+            this.explored = explored;
+            this.elapsed = elapsed;
+            this.records = records;
+        }
+    }
+}
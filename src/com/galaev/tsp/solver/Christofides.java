@@ -0,0 +1,210 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class {@code Christofides} provides Christofides' algorithm
+ * to solve the Travelling Salesman Problem approximately
+ * in polynomial time. The minimum spanning tree is built,
+ * the nodes of odd degree in the tree are matched by the
+ * perfect matching of the least cost, then the Euler tour
+ * of the tree and the matching is shortcut to a route.
+ * If costs are metric, e.g. the nodes are points of the plane,
+ * the route costs at most one and a half times the best one.
+ * <p>
+ * The graph must be symmetric. Required transitions
+ * are not supported. The matching takes {@code O(n^3)} time
+ * in the number of nodes of odd degree.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.solver.Matching
+ */
+public class Christofides implements Engine {
+
+    /**
+     * A method for processing the input graph.
+     *
+     * @param graph input symmetric graph
+     * @return result route and its cost, or null, if a route
+     *         is not found, because some transitions are blocked,
+     *         or if the search is interrupted
+     * @throws IllegalArgumentException if the graph is not symmetric
+     *         or has required transitions
+     */
+    @Override
+    public Route process(Graph graph) {
+        if (! graph.isSymmetric() || ! graph.getRequired().isEmpty()) {
+            throw new IllegalArgumentException("Graph must be symmetric and have no required transitions");
+        }
+        int size = graph.getSize();
+        if (size < 3) {
+            return Solver.getInstance().process(graph);
+        }
+        int[] parent = spanningTree(graph);
+        if (parent == null || Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        // Edges of the tree and of the matching
+        int[] degree = new int[size];
+        for (int v = 1; v < size; ++ v) {
+            ++ degree[v];
+            ++ degree[parent[v]];
+        }
+        int[] odd = new int[size];
+        int count = 0;
+        for (int v = 0; v < size; ++ v) {
+            if ((degree[v] & 1) != 0) {
+                odd[count++] = v;
+            }
+        }
+        long[] costs = new long[count * count];
+        for (int i = 0; i < count; ++ i) {
+            for (int j = 0; j < count; ++ j) {
+                costs[i * count + j] = i == j ? -1 : graph.getCost(odd[i], odd[j]);
+            }
+        }
+        int[] mates = Matching.minCostPerfect(costs, count);
+        if (mates == null || Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        int edges = size - 1 + count / 2;
+        int[] from = new int[edges];
+        int[] to = new int[edges];
+        int e = 0;
+        for (int v = 1; v < size; ++ v) {
+            from[e] = v;
+            to[e] = parent[v];
+            ++ e;
+        }
+        for (int i = 0; i < count; ++ i) {
+            if (i < mates[i]) {
+                from[e] = odd[i];
+                to[e] = odd[mates[i]];
+                ++ e;
+            }
+        }
+        // Shortcutting the Euler tour
+        int[] tour = eulerTour(size, from, to);
+        boolean[] visited = new boolean[size];
+        List<Transition> transitions = new ArrayList<>(size);
+        long cost = 0;
+        int last = 0;
+        visited[0] = true;
+        for (int node : tour) {
+            if (! visited[node]) {
+                visited[node] = true;
+                long value = graph.getCost(last, node);
+                if (value < 0) {
+                    return null;
+                }
+                transitions.add(new Transition(last, node));
+                cost += value;
+                last = node;
+            }
+        }
+        long value = graph.getCost(last, 0);
+        if (value < 0) {
+            return null;
+        }
+        transitions.add(new Transition(last, 0));
+        return new Route(cost + value, transitions);
+    }
+
+    /**
+     * Builds the minimum spanning tree by Prim's algorithm.
+     *
+     * @param graph input graph
+     * @return parent of each node in the tree, rooted at node 0,
+     *         or null, if the graph is not connected
+     */
+    private static int[] spanningTree(Graph graph) {
+        int size = graph.getSize();
+        int[] parent = new int[size];
+        long[] distance = new long[size];
+        boolean[] done = new boolean[size];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        Arrays.fill(parent, -1);
+        distance[0] = 0;
+        for (int step = 0; step < size; ++ step) {
+            int u = -1;
+            for (int v = 0; v < size; ++ v) {
+                if (! done[v] && distance[v] != Long.MAX_VALUE &&
+                        (u == -1 || distance[v] < distance[u])) {
+                    u = v;
+                }
+            }
+            if (u == -1) {
+                return null;
+            }
+            done[u] = true;
+            for (int k = 0; k < graph.getDegree(u); ++ k) {
+                int v = graph.getNeighbour(u, k);
+                long value = graph.getNeighbourCost(u, k);
+                if (value >= 0 && ! done[v] && value < distance[v]) {
+                    distance[v] = value;
+                    parent[v] = u;
+                }
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Finds the Euler tour of the connected multigraph,
+     * that has even degrees of all the nodes,
+     * by Hierholzer's algorithm.
+     *
+     * @param size number of nodes
+     * @param from first nodes of edges
+     * @param to second nodes of edges
+     * @return nodes of the tour, starting from node 0
+     */
+    private static int[] eulerTour(int size, int[] from, int[] to) {
+        int edges = from.length;
+        // Edges of each node
+        int[] start = new int[size + 1];
+        for (int e = 0; e < edges; ++ e) {
+            ++ start[from[e] + 1];
+            ++ start[to[e] + 1];
+        }
+        for (int v = 0; v < size; ++ v) {
+            start[v + 1] += start[v];
+        }
+        int[] incident = new int[2 * edges];
+        int[] position = Arrays.copyOf(start, size);
+        for (int e = 0; e < edges; ++ e) {
+            incident[position[from[e]]++] = e;
+            incident[position[to[e]]++] = e;
+        }
+        // Walking through unused edges
+        boolean[] used = new boolean[edges];
+        int[] next = Arrays.copyOf(start, size);
+        int[] stack = new int[edges + 1];
+        int[] tour = new int[edges + 1];
+        int top = 0;
+        int length = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int v = stack[top - 1];
+            while (next[v] < start[v + 1] && used[incident[next[v]]]) {
+                ++ next[v];
+            }
+            if (next[v] == start[v + 1]) {
+                tour[length++] = v;
+                -- top;
+            } else {
+                int e = incident[next[v]];
+                used[e] = true;
+                stack[top++] = from[e] == v ? to[e] : from[e];
+            }
+        }
+        return Arrays.copyOf(tour, length);
+    }
+}
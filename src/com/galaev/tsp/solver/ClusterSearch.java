@@ -0,0 +1,372 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.EuclideanInstance;
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class {@code ClusterSearch} solves large instances, where
+ * the nodes are points of the plane, by decomposition:
+ * cluster first, route second. The nodes are split into clusters
+ * by a k-d tree: the points are halved at the median of the wider
+ * side of their bounding box, until the clusters are small enough.
+ * Routes of the clusters are found in parallel by another engine,
+ * the order of the clusters is the route of their centres,
+ * that is found the same way, so the decomposition is recursive.
+ * <p>
+ * Route of each cluster is opened at the transition, that gives
+ * the cheapest connections to the previous and the next clusters,
+ * then the paths are joined. Finally, the seams between clusters
+ * are repaired by {@link com.galaev.tsp.solver.NeighbourhoodSearch}.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.model.EuclideanInstance
+ */
+public class ClusterSearch implements Engine {
+
+    /** Default maximum number of nodes in a cluster */
+    public static final int DEFAULT_CLUSTER = 200;
+
+    /** Pool of threads for parallel clusters */
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    /* Engine, that finds routes of clusters */
+    private final Engine engine;
+
+    /* Maximum number of nodes in a cluster */
+    private final int cluster;
+
+    /* Search, that repairs the seams */
+    private final NeighbourhoodSearch repair;
+
+    /**
+     * Public constructor.
+     * Creates the search with the default clusters, that are
+     * solved by Christofides' algorithm and improved by
+     * large neighbourhood search.
+     */
+    public ClusterSearch() {
+        this(new NeighbourhoodSearch(new Christofides(), NeighbourhoodSearch.DEFAULT_WINDOW), DEFAULT_CLUSTER);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param engine engine, that finds routes of clusters
+     * @param cluster maximum number of nodes in a cluster
+     */
+    public ClusterSearch(Engine engine, int cluster) {
+        if (cluster < 4 * (NeighbourhoodSearch.DEFAULT_WINDOW + 1)) {
+            throw new IllegalArgumentException("Clusters are too small to repair seams between them");
+        }
+        this.engine = engine;
+        this.cluster = cluster;
+        repair = new NeighbourhoodSearch(engine, NeighbourhoodSearch.DEFAULT_WINDOW);
+    }
+
+    /**
+     * A method for processing the input graph.
+     * Instances, that are not larger than a cluster,
+     * are passed to the engine of clusters.
+     *
+     * @param graph input graph of points of the plane
+     * @return result route and its cost, or null, if no route
+     *         is found, or if the search is interrupted
+     * @throws IllegalArgumentException if the graph is not an
+     *         {@link com.galaev.tsp.model.EuclideanInstance}
+     */
+    @Override
+    public Route process(Graph graph) {
+        if (! (graph instanceof EuclideanInstance)) {
+            throw new IllegalArgumentException("Decomposition needs coordinates of the nodes");
+        }
+        int size = graph.getSize();
+        if (size <= cluster) {
+            return engine.process(graph);
+        }
+        EuclideanInstance points = (EuclideanInstance) graph;
+        // Clusters of the k-d tree
+        int[] nodes = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            nodes[i] = i;
+        }
+        List<int[]> clusters = new ArrayList<>();
+        split(points, nodes, 0, size, clusters);
+        int count = clusters.size();
+        // Order of the clusters
+        double[] cx = new double[count];
+        double[] cy = new double[count];
+        for (int c = 0; c < count; ++ c) {
+            for (int node : clusters.get(c)) {
+                cx[c] += points.getX(node);
+                cy[c] += points.getY(node);
+            }
+            cx[c] /= clusters.get(c).length;
+            cy[c] /= clusters.get(c).length;
+        }
+        int[] sequence = new int[count];
+        if (count > 3) {
+            Route centres = process(new EuclideanInstance(cx, cy));
+            if (centres == null) {
+                return null;
+            }
+            for (int i = 0; i < count; ++ i) {
+                sequence[i] = centres.getNode(i);
+            }
+        } else {
+            for (int i = 0; i < count; ++ i) {
+                sequence[i] = i;
+            }
+        }
+        // Routes of the clusters
+        int[][] routes = new int[count][];
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Clusters task = new Clusters(cancelled, points, clusters, routes, 0, count);
+        pool.execute(task);
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            // Clusters, that are not started yet, are skipped
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Clusters are not solved", e.getCause());
+        }
+        for (int[] route : routes) {
+            if (route == null) {
+                return null;
+            }
+        }
+        // Joining the paths
+        int[] order = new int[size];
+        int[] seams = new int[count];
+        int length = 0;
+        double px = cx[sequence[count - 1]];
+        double py = cy[sequence[count - 1]];
+        for (int i = 0; i < count; ++ i) {
+            int[] route = routes[sequence[i]];
+            // The first node of the next cluster is known for the last one only
+            double qx = i + 1 < count ? cx[sequence[i + 1]] : points.getX(order[0]);
+            double qy = i + 1 < count ? cy[sequence[i + 1]] : points.getY(order[0]);
+            length = open(points, route, px, py, qx, qy, order, length);
+            seams[i] = length - 1;
+            px = points.getX(order[length - 1]);
+            py = points.getY(order[length - 1]);
+        }
+        repair.repair(graph, order, seams);
+        if (Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        // The route starts at node 0
+        int first = 0;
+        while (order[first] != 0) {
+            ++ first;
+        }
+        List<Transition> transitions = new ArrayList<>(size);
+        long cost = 0;
+        for (int i = 0; i < size; ++ i) {
+            int from = order[(first + i) % size];
+            int to = order[(first + i + 1) % size];
+            transitions.add(new Transition(from, to));
+            cost += graph.getCost(from, to);
+        }
+        return new Route(cost, transitions);
+    }
+
+    /**
+     * Splits the nodes into clusters by the k-d tree.
+     *
+     * @param points input graph
+     * @param nodes array of nodes, that is rearranged
+     * @param from first index of the nodes to split
+     * @param to index after the last one of the nodes to split
+     * @param clusters list to add the clusters to
+     */
+    private void split(EuclideanInstance points, int[] nodes, int from, int to, List<int[]> clusters) {
+        if (to - from <= cluster) {
+            clusters.add(Arrays.copyOfRange(nodes, from, to));
+            return;
+        }
+        double minX = Double.MAX_VALUE;
+        double maxX = - Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxY = - Double.MAX_VALUE;
+        for (int i = from; i < to; ++ i) {
+            minX = Math.min(minX, points.getX(nodes[i]));
+            maxX = Math.max(maxX, points.getX(nodes[i]));
+            minY = Math.min(minY, points.getY(nodes[i]));
+            maxY = Math.max(maxY, points.getY(nodes[i]));
+        }
+        boolean horizontal = maxX - minX >= maxY - minY;
+        int middle = (from + to) >>> 1;
+        select(points, horizontal, nodes, from, to - 1, middle);
+        split(points, nodes, from, middle, clusters);
+        split(points, nodes, middle, to, clusters);
+    }
+
+    /**
+     * Rearranges the nodes, so the node with the given index
+     * is in its sorted place, nodes before it are not greater
+     * and nodes after it are not less (quickselect).
+     *
+     * @param points input graph
+     * @param horizontal whether the nodes are compared by abscissas
+     * @param nodes array of nodes
+     * @param low first index of the range
+     * @param high last index of the range
+     * @param k index to select
+     */
+    private static void select(EuclideanInstance points, boolean horizontal,
+                               int[] nodes, int low, int high, int k) {
+        while (low < high) {
+            double pivot = coordinate(points, horizontal, nodes[(low + high) >>> 1]);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coordinate(points, horizontal, nodes[i]) < pivot) {
+                    ++ i;
+                }
+                while (coordinate(points, horizontal, nodes[j]) > pivot) {
+                    -- j;
+                }
+                if (i <= j) {
+                    int swap = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = swap;
+                    ++ i;
+                    -- j;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the coordinate of the node.
+     */
+    private static double coordinate(EuclideanInstance points, boolean horizontal, int node) {
+        return horizontal ? points.getX(node) : points.getY(node);
+    }
+
+    /**
+     * Opens the route of a cluster into a path, that is connected
+     * to the given points cheaply, and appends the path to the order.
+     *
+     * @param points input graph
+     * @param route nodes of the route of the cluster in order
+     * @param px abscissa of the point before the path
+     * @param py ordinate of the point before the path
+     * @param qx abscissa of the point after the path
+     * @param qy ordinate of the point after the path
+     * @param order array to append the path to
+     * @param length number of nodes in the order
+     * @return number of nodes in the order with the path
+     */
+    private static int open(EuclideanInstance points, int[] route,
+                            double px, double py, double qx, double qy, int[] order, int length) {
+        int n = route.length;
+        int best = 0;
+        boolean forward = true;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 0; i < n; ++ i) {
+            int a = route[i];
+            int b = route[(i + 1) % n];
+            double ab = distance(points, a, points.getX(b), points.getY(b));
+            // From 'b' forward to 'a'
+            double cost = distance(points, b, px, py) + distance(points, a, qx, qy) - ab;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = i;
+                forward = true;
+            }
+            // From 'a' backward to 'b'
+            cost = distance(points, a, px, py) + distance(points, b, qx, qy) - ab;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = i;
+                forward = false;
+            }
+        }
+        for (int k = 0; k < n; ++ k) {
+            order[length++] = forward ? route[(best + 1 + k) % n] : route[(best - k + n) % n];
+        }
+        return length;
+    }
+
+    /**
+     * Returns the distance between the node and the point.
+     */
+    private static double distance(EuclideanInstance points, int node, double x, double y) {
+        return Math.hypot(points.getX(node) - x, points.getY(node) - y);
+    }
+
+    /**
+     * Parallel task, that finds routes of a range of clusters.
+     * The route of a cluster is left null, if the engine finds none,
+     * or if the task is cancelled.
+     */
+    private class Clusters extends RecursiveAction {
+
+        /* Task parameters */
+        private final AtomicBoolean cancelled;
+        private final EuclideanInstance points;
+        private final List<int[]> clusters;
+        private final int[][] routes;
+        private final int from;
+        private final int to;
+
+        /**
+         * Package-private constructor.
+         */
+        Clusters(AtomicBoolean cancelled, EuclideanInstance points, List<int[]> clusters, int[][] routes, int from, int to) {
+            this.cancelled = cancelled;
+            this.points = points;
+            this.clusters = clusters;
+            this.routes = routes;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Solves the cluster or splits the range in two.
+         */
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            if (to - from == 1) {
+                int[] nodes = clusters.get(from);
+                Route route = engine.process(points.subset(nodes));
+                if (route == null) {
+                    return;
+                }
+                routes[from] = new int[nodes.length];
+                for (int i = 0; i < nodes.length; ++ i) {
+                    routes[from][i] = nodes[route.getNode(i)];
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Clusters(cancelled, points, clusters, routes, from, middle),
+                      new Clusters(cancelled, points, clusters, routes, middle, to));
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Instance;
+import com.galaev.tsp.model.Matrix;
+import com.galaev.tsp.model.Route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class {@code Coordinator} solves instances exactly by the branch
+ * & bound search, that is shared between {@link com.galaev.tsp.solver.Worker}
+ * processes. Workers may be started on this machine, or they may
+ * connect from other ones. Each worker explores its subtrees of the search
+ * best first; when a worker runs out of work, busy workers are asked
+ * to give away a half of their waiting subproblems, which are sent
+ * to the idle one. Subproblems are sent as compact records, the same
+ * as in checkpoints, and they are restored by the receiver.
+ * <p>
+ * The cost of the best route, that any worker finds, is sent to all the
+ * others, so they prune their subtrees with it. The solve is over, when
+ * all the workers are idle and no subproblem is left. A lost worker
+ * fails the solve, because its subtrees are lost with it.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Worker
+ * @see com.galaev.tsp.solver.Solver
+ */
+public class Coordinator implements Engine, Closeable {
+
+    /** Time in milliseconds, before a worker, that had nothing to give, is asked again */
+    private static final long BACKOFF = 50;
+
+    /* Socket, that workers connect to */
+    private final ServerSocket server;
+
+    /* Connected workers */
+    private final List<Link> links = new ArrayList<>();
+
+    /* Started worker processes */
+    private final List<Process> processes = new ArrayList<>();
+
+    /* Messages from all the workers */
+    private final BlockingQueue<Protocol.Message> events = new LinkedBlockingQueue<>();
+
+    /* Whether a worker is lost, so no more solves are possible */
+    private boolean broken;
+
+    /**
+     * Public constructor.
+     * The coordinator listens on the port for workers.
+     *
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public Coordinator(int port) throws IOException {
+        server = new ServerSocket(port);
+    }
+
+    /**
+     * Getter for the port, that workers connect to.
+     *
+     * @return port of the coordinator
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Getter for the number of connected workers.
+     *
+     * @return number of workers
+     */
+    public synchronized int getWorkers() {
+        return links.size();
+    }
+
+    /**
+     * Starts worker processes on this machine with the same
+     * Java and class path, and waits, until they connect.
+     *
+     * @param count number of workers to start
+     * @throws IOException if a worker cannot be started
+     */
+    public synchronized void startWorkers(int count) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < count; ++ i) {
+            ProcessBuilder builder = new ProcessBuilder(java,
+                    "-cp", System.getProperty("java.class.path"),
+                    Worker.class.getName(),
+                    InetAddress.getLoopbackAddress().getHostAddress(),
+                    String.valueOf(getPort()));
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            processes.add(builder.start());
+        }
+        acceptWorkers(count);
+    }
+
+    /**
+     * Waits, until the workers, that are started elsewhere, connect.
+     *
+     * @param count number of workers to wait for
+     * @throws IOException if the connection fails
+     */
+    public synchronized void acceptWorkers(int count) throws IOException {
+        for (int i = 0; i < count; ++ i) {
+            Socket socket = server.accept();
+            socket.setTcpNoDelay(true);
+            final Link link = new Link(links.size(), socket);
+            links.add(link);
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    link.receive(events);
+                }
+            }, "coordinator-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    /**
+     * A method for processing the input matrix.
+     *
+     * @param mx input matrix
+     * @return result route and its cost
+     * @see #process(com.galaev.tsp.model.Graph)
+     */
+    public Route process(Matrix mx) {
+        return process(new Instance(mx));
+    }
+
+    /**
+     * A method for processing the input graph by the workers.
+     *
+     * @param graph input graph
+     * @return result route and its cost, or null, if there is no route
+     *         at all, or if the thread is interrupted
+     * @throws IllegalStateException if there are no workers,
+     *         or a worker is lost
+     */
+    @Override
+    public synchronized Route process(Graph graph) {
+        if (links.isEmpty()) {
+            throw new IllegalStateException("No workers");
+        }
+        if (broken) {
+            throw new IllegalStateException("A worker is lost");
+        }
+        // Only a lost worker may leave a message after the previous solve
+        Protocol.Message left;
+        while ((left = events.poll()) != null) {
+            check(left);
+        }
+        int count = links.size();
+        // Number of WORK messages sent and explored by each worker
+        long[] sent = new long[count];
+        long[] explored = new long[count];
+        // Whether the worker is asked to give away subproblems
+        boolean[] splitting = new boolean[count];
+        // Time, before which the worker is not asked again
+        long[] quiet = new long[count];
+        // Subproblems to send to idle workers, best first
+        PriorityQueue<Checkpoint.Record> backlog = new PriorityQueue<>();
+        backlog.add(new Checkpoint.Record(0, new int[0], new int[0]));
+
+        Protocol.Message graphMessage = new Protocol.Message(Protocol.GRAPH, -1);
+        graphMessage.graph = graph;
+        broadcast(graphMessage, -1);
+
+        Route best = null;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                long upper = best == null ? Long.MAX_VALUE : best.getCost();
+                dispatch(backlog, upper, sent, explored, splitting, quiet);
+                if (backlog.isEmpty() && isOver(sent, explored, splitting)) {
+                    break;
+                }
+                Protocol.Message message = events.poll(BACKOFF, TimeUnit.MILLISECONDS);
+                if (message == null) {
+                    continue;
+                }
+                check(message);
+                int source = message.source;
+                switch (message.type) {
+                    case Protocol.ROUTE:
+                        if (message.value < upper) {
+                            best = new Route(message.value, message.nodes);
+                            Protocol.Message bound = new Protocol.Message(Protocol.BOUND, -1);
+                            bound.value = message.value;
+                            broadcast(bound, source);
+                        }
+                        break;
+                    case Protocol.DONATE:
+                        splitting[source] = false;
+                        if (message.records.isEmpty()) {
+                            quiet[source] = System.currentTimeMillis() + BACKOFF;
+                        }
+                        for (Checkpoint.Record record : message.records) {
+                            if (record.bound < upper) {
+                                backlog.add(record);
+                            }
+                        }
+                        break;
+                    case Protocol.IDLE:
+                        explored[source] = message.value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            best = null;
+        } finally {
+            finish();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return best;
+    }
+
+    /**
+     * Stops the workers and closes the socket.
+     *
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Link link : links) {
+            try {
+                link.send(new Protocol.Message(Protocol.STOP, -1));
+            } catch (IOException e) {
+                // The worker is lost already
+            }
+            link.close();
+        }
+        links.clear();
+        for (Process process : processes) {
+            try {
+                process.waitFor();
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes.clear();
+        server.close();
+    }
+
+    /**
+     * Sends subproblems to idle workers, or asks busy workers
+     * to give away some, if there is nothing to send.
+     */
+    private void dispatch(PriorityQueue<Checkpoint.Record> backlog, long upper, long[] sent,
+                          long[] explored, boolean[] splitting, long[] quiet) {
+        int count = links.size();
+        List<Integer> idle = new ArrayList<>(count);
+        for (int i = 0; i < count; ++ i) {
+            if (sent[i] == explored[i]) {
+                idle.add(i);
+            }
+        }
+        if (idle.isEmpty()) {
+            return;
+        }
+        if (! backlog.isEmpty()) {
+            // Deal the subproblems round robin, so each idle worker
+            // gets good ones
+            List<List<Checkpoint.Record>> shares = new ArrayList<>(idle.size());
+            for (int i = 0; i < idle.size(); ++ i) {
+                shares.add(new ArrayList<Checkpoint.Record>());
+            }
+            int next = 0;
+            while (! backlog.isEmpty()) {
+                Checkpoint.Record record = backlog.poll();
+                if (record.bound < upper) {
+                    shares.get(next).add(record);
+                    next = (next + 1) % idle.size();
+                }
+            }
+            for (int i = 0; i < idle.size(); ++ i) {
+                if (shares.get(i).isEmpty()) {
+                    continue;
+                }
+                int worker = idle.get(i);
+                Protocol.Message work = new Protocol.Message(Protocol.WORK, -1);
+                work.records = shares.get(i);
+                send(worker, work);
+                ++ sent[worker];
+            }
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; ++ i) {
+            if (sent[i] != explored[i] && ! splitting[i] && quiet[i] <= now) {
+                send(i, new Protocol.Message(Protocol.SPLIT, -1));
+                splitting[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Checks, whether the solve is over.
+     *
+     * @return true, if all the workers are idle and none is asked
+     *         to give away subproblems
+     */
+    private static boolean isOver(long[] sent, long[] explored, boolean[] splitting) {
+        for (int i = 0; i < sent.length; ++ i) {
+            if (sent[i] != explored[i] || splitting[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ends the solve on all the workers and waits,
+     * until they acknowledge it, so no message
+     * of this solve is left for the next one.
+     */
+    private void finish() {
+        if (broken) {
+            return;
+        }
+        broadcast(new Protocol.Message(Protocol.DONE, -1), -1);
+        boolean interrupted = false;
+        int left = links.size();
+        while (left > 0) {
+            try {
+                Protocol.Message message = events.take();
+                check(message);
+                if (message.type == Protocol.IDLE && message.value == -1) {
+                    -- left;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fails the solve, if the message tells, that a worker is lost.
+     */
+    private void check(Protocol.Message message) {
+        if (message.error != null) {
+            broken = true;
+            throw new IllegalStateException("Worker " + message.source + " is lost", message.error);
+        }
+    }
+
+    /**
+     * Sends the message to all the workers except for one.
+     */
+    private void broadcast(Protocol.Message message, int except) {
+        for (int i = 0; i < links.size(); ++ i) {
+            if (i != except) {
+                send(i, message);
+            }
+        }
+    }
+
+    /**
+     * Sends the message to the worker.
+     *
+     * @throws IllegalStateException if the worker is lost
+     */
+    private void send(int worker, Protocol.Message message) {
+        try {
+            links.get(worker).send(message);
+        } catch (IOException e) {
+            broken = true;
+            throw new IllegalStateException("Worker " + worker + " is lost", e);
+        }
+    }
+
+    /**
+     * Connection to a worker.
+     */
+    private static final class Link {
+
+        /* Index of the worker */
+        private final int index;
+
+        /* Connection */
+        private final Socket socket;
+        private final ObjectOutputStream out;
+        private final ObjectInputStream in;
+
+        /**
+         * Private constructor.
+         */
+        private Link(int index, Socket socket) throws IOException {
+            this.index = index;
+            this.socket = socket;
+            out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        /**
+         * Sends the message to the worker.
+         */
+        private synchronized void send(Protocol.Message message) throws IOException {
+            Protocol.write(out, message);
+        }
+
+        /**
+         * Reads messages of the worker to the queue,
+         * until the connection is lost.
+         */
+        private void receive(BlockingQueue<Protocol.Message> events) {
+            try {
+                while (true) {
+                    events.add(Protocol.read(in, index));
+                }
+            } catch (IOException e) {
+                Protocol.Message lost = new Protocol.Message(Protocol.STOP, index);
+                lost.error = e;
+                events.add(lost);
+            }
+        }
+
+        /**
+         * Closes the connection.
+         */
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+}
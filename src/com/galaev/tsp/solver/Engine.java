@@ -0,0 +1,25 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+
+/**
+ * Interface {@code Engine} represents a method
+ * to solve the Travelling Salesman Problem.
+ * Engines do not change the graph, so one graph
+ * may be processed by several engines concurrently.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Solver
+ */
+public interface Engine {
+
+    /**
+     * A method for processing the input graph.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if there is no route at all
+     */
+    Route process(Graph graph);
+}
@@ -0,0 +1,246 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.EuclideanInstance;
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+
+import java.util.Random;
+
+/**
+ * Class {@code EngineSelector} chooses the engine for the graph
+ * by its size and structure, so graphs of any size are solved
+ * without tuning. Small graphs are solved exactly. Graphs
+ * of medium size are solved by the exact solver, that races
+ * heuristics within the time budget. Large graphs are solved
+ * by heuristics: points of the plane are decomposed into clusters,
+ * complete symmetric graphs, that satisfy the triangle inequality,
+ * start from Christofides' route, others start from beam search.
+ * <p>
+ * A heuristic may run into a dead end on a graph with many blocked
+ * transitions, although the graph has a route. Then the graph is
+ * solved again by wider and wider beam search, and if it fails too,
+ * graphs of moderate size are solved exactly under a
+ * {@link com.galaev.tsp.solver.Governor}. Only the exact search
+ * proves, that the graph has no route at all.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.solver.Portfolio
+ */
+public class EngineSelector implements Engine {
+
+    /** Default time budget of the race in milliseconds */
+    public static final long DEFAULT_BUDGET = 5000;
+
+    /** Maximum number of nodes, that are solved exactly */
+    private static final int EXACT_SIZE = 15;
+
+    /** Maximum number of nodes, that are raced within the time budget */
+    private static final int PORTFOLIO_SIZE = 30;
+
+    /** Maximum number of nodes, that start from Christofides' route */
+    private static final int CHRISTOFIDES_SIZE = 1000;
+
+    /** Minimum number of points of the plane, that are decomposed */
+    private static final int CLUSTER_SIZE = 1000;
+
+    /** Width of the first beam search, that is tried after a heuristic failed */
+    private static final int RESCUE_WIDTH = 10 * BeamSearch.DEFAULT_WIDTH;
+
+    /** Maximum number of states of all layers of a wider beam search */
+    private static final long RESCUE_STATES = 10000000;
+
+    /** Maximum number of nodes, that are solved exactly after a heuristic failed */
+    private static final int RESCUE_SIZE = 200;
+
+    /** Number of triples of nodes to check the triangle inequality on */
+    private static final int METRIC_SAMPLES = 10000;
+
+    /* Time budget of the race in milliseconds */
+    private final long budget;
+
+    /**
+     * Public constructor.
+     * Creates the selector with the default time budget.
+     */
+    public EngineSelector() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Public constructor.
+     * The time budget bounds the race of graphs of medium size,
+     * heuristics for large graphs run until they finish.
+     *
+     * @param budget time budget of the race in milliseconds
+     */
+    public EngineSelector(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * A method for processing the input graph
+     * by the engine, that is chosen for it.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    @Override
+    public Route process(Graph graph) {
+        return process(graph, new Incumbent());
+    }
+
+    /**
+     * A method for processing the input graph, that shares
+     * the bounds with the chosen engine. The exact solver and the
+     * portfolio prune their search with the route of the incumbent,
+     * a heuristic just offers its route to it.
+     * When the graph is proven to have no route, the lower bound
+     * of the incumbent is raised to {@code Long.MAX_VALUE}.
+     *
+     * @param graph input graph
+     * @param incumbent shared bounds
+     * @return result route and its cost, that is not worse,
+     *         than the route of the incumbent, or null, if no route is found
+     */
+    public Route process(Graph graph, Incumbent incumbent) {
+        Engine engine = select(graph);
+        if (engine instanceof Solver) {
+            return solve(graph, incumbent);
+        }
+        if (engine instanceof Portfolio) {
+            Route route = ((Portfolio) engine).process(graph, incumbent);
+            if (route == null && ! Thread.currentThread().isInterrupted()) {
+                // The race waits for the exact solver, until a route is found
+                incumbent.raiseLower(Long.MAX_VALUE);
+            }
+            return route;
+        }
+        if (engine instanceof NeighbourhoodSearch) {
+            ((NeighbourhoodSearch) engine).process(graph, incumbent);
+        } else {
+            incumbent.offer(engine.process(graph));
+        }
+        if (incumbent.getRoute() == null && ! Thread.currentThread().isInterrupted()) {
+            return rescue(graph, incumbent);
+        }
+        return incumbent.getRoute();
+    }
+
+    /**
+     * Solves the graph, that the heuristic found no route of,
+     * by beam search, that is ten times wider each time, while the
+     * states fit, and then exactly, if the graph is not too large.
+     *
+     * @param graph input graph
+     * @param incumbent shared bounds
+     * @return result route and its cost, or null, if no route is found
+     */
+    private Route rescue(Graph graph, Incumbent incumbent) {
+        int width = RESCUE_WIDTH;
+        do {
+            new NeighbourhoodSearch(new BeamSearch(width), NeighbourhoodSearch.DEFAULT_WINDOW)
+                    .process(graph, incumbent);
+            width *= 10;
+        } while (incumbent.getRoute() == null && (long) width * graph.getSize() <= RESCUE_STATES
+                && ! Thread.currentThread().isInterrupted());
+        if (incumbent.getRoute() != null || graph.getSize() > RESCUE_SIZE
+                || Thread.currentThread().isInterrupted()) {
+            return incumbent.getRoute();
+        }
+        return solve(graph, incumbent);
+    }
+
+    /**
+     * Solves the graph exactly under a governor.
+     * If the search is over, and no subproblem was dropped,
+     * a missing route proves, that the graph has none.
+     *
+     * @param graph input graph
+     * @param incumbent shared bounds
+     * @return result route and its cost, or null, if no route is found
+     */
+    private Route solve(Graph graph, Incumbent incumbent) {
+        Governor governor = new Governor();
+        Route route = Solver.getInstance().process(graph, incumbent, null, governor);
+        if (route == null && ! Thread.currentThread().isInterrupted()
+                && governor.getLevel() != Governor.STOPPED) {
+            incumbent.raiseLower(Long.MAX_VALUE);
+        }
+        return route;
+    }
+
+    /**
+     * Chooses the engine for the graph.
+     *
+     * @param graph input graph
+     * @return engine for the graph
+     */
+    public Engine select(Graph graph) {
+        int size = graph.getSize();
+        if (size <= EXACT_SIZE) {
+            return Solver.getInstance();
+        }
+        boolean points = graph instanceof EuclideanInstance;
+        if (points && size > CLUSTER_SIZE) {
+            return new ClusterSearch();
+        }
+        Engine heuristic;
+        if (size <= CHRISTOFIDES_SIZE && graph.isSymmetric() && graph.getRequired().isEmpty()
+                && (points || isComplete(graph) && isMetric(graph))) {
+            heuristic = new NeighbourhoodSearch(new Christofides(), NeighbourhoodSearch.DEFAULT_WINDOW);
+        } else {
+            heuristic = new NeighbourhoodSearch();
+        }
+        if (size <= PORTFOLIO_SIZE) {
+            return new Portfolio(0, budget, heuristic);
+        }
+        return heuristic;
+    }
+
+    /**
+     * Checks, whether no transition of the graph is blocked.
+     *
+     * @param graph input graph
+     * @return true, if all the transitions are available
+     */
+    static boolean isComplete(Graph graph) {
+        int size = graph.getSize();
+        for (int node = 0; node < size; ++ node) {
+            if (graph.getDegree(node) < size - 1) {
+                return false;
+            }
+            for (int k = 0; k < size - 1; ++ k) {
+                if (graph.getNeighbourCost(node, k) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the triangle inequality on random triples of nodes.
+     * The same triples are checked for the same graph.
+     *
+     * @param graph input graph with all the transitions available
+     * @return true, if no triple violates the inequality
+     */
+    static boolean isMetric(Graph graph) {
+        int size = graph.getSize();
+        Random random = new Random(size);
+        for (int sample = 0; sample < METRIC_SAMPLES; ++ sample) {
+            int a = random.nextInt(size);
+            int b = random.nextInt(size);
+            int c = random.nextInt(size);
+            if (a != b && b != c && a != c && graph.getCost(a, c) > graph.getCost(a, b) + graph.getCost(b, c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,380 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Estimate;
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Instance;
+import com.galaev.tsp.model.Matrix;
+import com.galaev.tsp.model.SparseInstance;
+import com.galaev.tsp.model.Transition;
+
+import java.util.Arrays;
+
+/**
+ * Class {@code Estimator} finds bounds of the cost of the best route
+ * quickly, without solving the instance, e.g. to compare many
+ * instances. The lower bound is proven, the upper bound is the cost
+ * of the nearest neighbour route. Bounds of growing tightness and cost
+ * may be chosen, each of them includes the cheaper ones:
+ * <ul>
+ *     <li>{@link #REDUCTION} - the root reduction of the branch & bound,
+ *         {@code O(n^2)} time;</li>
+ *     <li>{@link #ASSIGNMENT} - the cheapest assignment of next nodes,
+ *         that may form several cycles, {@code O(n^3)} time;</li>
+ *     <li>{@link #ONE_TREE} - the Held-Karp bound, the best of 1-trees
+ *         with penalties of nodes found by subgradient optimisation,
+ *         {@code O(n^2)} time per iteration. It is tight
+ *         for symmetric instances, asymmetric ones are
+ *         relaxed to the cheaper direction of each transition.</li>
+ * </ul>
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Estimate
+ */
+public final class Estimator {
+
+    /** Bound of the root reduction */
+    public static final int REDUCTION = 0;
+
+    /** Assignment bound, includes the reduction bound */
+    public static final int ASSIGNMENT = 1;
+
+    /** Held-Karp bound, includes the assignment bound */
+    public static final int ONE_TREE = 2;
+
+    /** Maximum number of iterations of subgradient optimisation */
+    private static final int ITERATIONS = 100;
+
+    /** Number of iterations without improvement, after which the step is halved */
+    private static final int PATIENCE = 5;
+
+    /** Step factor, at which subgradient optimisation stops */
+    private static final double MIN_FACTOR = 1e-3;
+
+    /**
+     * Private default constructor.
+     * No one can instantiate Estimator.
+     */
+    private Estimator() { }
+
+    /**
+     * Finds the bounds for the input matrix.
+     * The matrix itself is not changed.
+     *
+     * @param matrix input matrix
+     * @param tightness {@link #REDUCTION}, {@link #ASSIGNMENT} or {@link #ONE_TREE}
+     * @return lower and upper bounds
+     */
+    public static Estimate estimate(Matrix matrix, int tightness) {
+        Graph graph = SparseInstance.isSparse(matrix) ? new SparseInstance(matrix) : new Instance(matrix);
+        return estimate(graph, tightness, true);
+    }
+
+    /**
+     * Finds the bounds for the input graph.
+     *
+     * @param graph input graph
+     * @param tightness {@link #REDUCTION}, {@link #ASSIGNMENT} or {@link #ONE_TREE}
+     * @param withUpper whether the upper bound should be found
+     * @return lower and upper bounds
+     */
+    public static Estimate estimate(Graph graph, int tightness, boolean withUpper) {
+        if (tightness < REDUCTION || tightness > ONE_TREE) {
+            throw new IllegalArgumentException("Unknown tightness " + tightness);
+        }
+        long upper = withUpper ? nearestNeighbour(graph) : Long.MAX_VALUE;
+        long lower = reductionBound(graph);
+        if (tightness >= ASSIGNMENT && lower != Long.MAX_VALUE) {
+            lower = Math.max(lower, assignmentBound(graph));
+        }
+        if (tightness >= ONE_TREE && lower != Long.MAX_VALUE) {
+            lower = Math.max(lower, oneTreeBound(graph, upper));
+        }
+        return new Estimate(lower, upper);
+    }
+
+    /**
+     * Finds the bound of the root subproblem of the branch & bound,
+     * after required transitions are fixed and costs are reduced.
+     *
+     * @param graph input graph
+     * @return lower bound, or {@code Long.MAX_VALUE}, if there is no route
+     */
+    static long reductionBound(Graph graph) {
+        Subproblem root = new Subproblem(graph);
+        if (! Solver.getInstance().fixRequired(root, graph)
+                || ! root.reduce(new SubproblemPool(graph.getSize(), graph.isWide()))) {
+            return Long.MAX_VALUE;
+        }
+        return root.getBound();
+    }
+
+    /**
+     * Finds the cost of the cheapest assignment of the next node
+     * to each node by the Hungarian method. Required transitions
+     * are the only ones available in their rows and columns.
+     * Costs of wide instances may overflow, so they are not bounded.
+     *
+     * @param graph input graph
+     * @return lower bound, or {@code Long.MAX_VALUE}, if there is no route
+     */
+    static long assignmentBound(Graph graph) {
+        if (graph.isWide()) {
+            return 0;
+        }
+        int n = graph.getSize();
+        // Blocked cells cost more than any assignment of available ones
+        long[] costs = new long[n * n];
+        graph.copyCosts(costs);
+        long blocked = 1;
+        for (long value : costs) {
+            blocked += Math.max(value, 0);
+        }
+        for (Transition transition : graph.getRequired()) {
+            int f = transition.getFrom();
+            int t = transition.getTo();
+            for (int i = 0; i < n; ++ i) {
+                if (i != t) {
+                    costs[f * n + i] = -1;
+                }
+                if (i != f) {
+                    costs[i * n + t] = -1;
+                }
+            }
+        }
+        for (int i = 0; i < n * n; ++ i) {
+            if (costs[i] < 0) {
+                costs[i] = blocked;
+            }
+        }
+        // Potentials of rows and columns, columns are numbered from 1
+        long[] u = new long[n + 1];
+        long[] v = new long[n + 1];
+        int[] owner = new int[n + 1];
+        int[] way = new int[n + 1];
+        long[] slack = new long[n + 1];
+        boolean[] used = new boolean[n + 1];
+        for (int row = 1; row <= n; ++ row) {
+            owner[0] = row;
+            int j0 = 0;
+            Arrays.fill(slack, Long.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = owner[j0];
+                long delta = Long.MAX_VALUE;
+                int j1 = 0;
+                for (int j = 1; j <= n; ++ j) {
+                    if (! used[j]) {
+                        long current = costs[(i0 - 1) * n + j - 1] - u[i0] - v[j];
+                        if (current < slack[j]) {
+                            slack[j] = current;
+                            way[j] = j0;
+                        }
+                        if (slack[j] < delta) {
+                            delta = slack[j];
+                            j1 = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= n; ++ j) {
+                    if (used[j]) {
+                        u[owner[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        slack[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (owner[j0] != 0);
+            // Augmenting along the found path
+            do {
+                int j1 = way[j0];
+                owner[j0] = owner[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        long total = 0;
+        for (int j = 1; j <= n; ++ j) {
+            long value = costs[(owner[j] - 1) * n + j - 1];
+            if (value == blocked) {
+                return Long.MAX_VALUE;
+            }
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Finds the Held-Karp bound: the cost of the cheapest 1-tree,
+     * i.e. the spanning tree of all the nodes but node 0 and two
+     * transitions of node 0, where costs are increased by penalties
+     * of both nodes, less the doubled sum of penalties. Penalties are
+     * raised for nodes of degree over two and lowered for leaves,
+     * until the 1-tree becomes a route or the step vanishes.
+     * The 1-trees are built with penalties rounded to integers,
+     * so each bound is exact, however wide the costs are.
+     *
+     * @param graph input graph
+     * @param upper cost of some route, that guides the steps,
+     *              or {@code Long.MAX_VALUE}, if it is not known
+     * @return lower bound, or {@code Long.MAX_VALUE}, if there is no route
+     */
+    static long oneTreeBound(Graph graph, long upper) {
+        int n = graph.getSize();
+        if (n < 3) {
+            return 0;
+        }
+        // Cheaper direction of each transition, -1 if both are blocked
+        long[] weights = new long[n * n];
+        for (int i = 0; i < n; ++ i) {
+            for (int j = 0; j < n; ++ j) {
+                long forward = i == j ? -1 : graph.getCost(i, j);
+                long backward = i == j ? -1 : graph.getCost(j, i);
+                weights[i * n + j] = forward < 0 ? backward : backward < 0 ? forward : Math.min(forward, backward);
+            }
+        }
+        double[] penalty = new double[n];
+        long[] rounded = new long[n];
+        int[] degree = new int[n];
+        int[] parent = new int[n];
+        long[] key = new long[n];
+        boolean[] inTree = new boolean[n];
+        long best = Long.MIN_VALUE;
+        double factor = 2;
+        for (int iteration = 0, stale = 0; iteration < ITERATIONS && factor > MIN_FACTOR; ++ iteration) {
+            long sum = 0;
+            for (int v = 0; v < n; ++ v) {
+                rounded[v] = Math.round(penalty[v]);
+                sum += rounded[v];
+            }
+            // Spanning tree of nodes except node 0 by Prim's algorithm
+            Arrays.fill(degree, 0);
+            Arrays.fill(key, Long.MAX_VALUE);
+            Arrays.fill(inTree, false);
+            key[1] = 0;
+            parent[1] = -1;
+            long total = 0;
+            for (int step = 1; step < n; ++ step) {
+                int u = -1;
+                for (int v = 1; v < n; ++ v) {
+                    if (! inTree[v] && (u == -1 || key[v] < key[u])) {
+                        u = v;
+                    }
+                }
+                if (key[u] == Long.MAX_VALUE) { // not connected
+                    return Long.MAX_VALUE;
+                }
+                inTree[u] = true;
+                total += key[u];
+                if (parent[u] != -1) {
+                    ++ degree[u];
+                    ++ degree[parent[u]];
+                }
+                for (int v = 1; v < n; ++ v) {
+                    long weight = weights[u * n + v];
+                    if (weight < 0 || inTree[v]) {
+                        continue;
+                    }
+                    long value = weight + rounded[u] + rounded[v];
+                    if (value < key[v]) {
+                        key[v] = value;
+                        parent[v] = u;
+                    }
+                }
+            }
+            // Two cheapest transitions of node 0
+            int first = -1;
+            int second = -1;
+            for (int v = 1; v < n; ++ v) {
+                if (weights[v] < 0) {
+                    continue;
+                }
+                long value = weights[v] + rounded[v];
+                if (first == -1 || value < weights[first] + rounded[first]) {
+                    second = first;
+                    first = v;
+                } else if (second == -1 || value < weights[second] + rounded[second]) {
+                    second = v;
+                }
+            }
+            if (second == -1) {
+                return Long.MAX_VALUE;
+            }
+            total += weights[first] + rounded[first] + weights[second] + rounded[second] + 2 * rounded[0];
+            degree[0] = 2;
+            ++ degree[first];
+            ++ degree[second];
+            long bound = total - 2 * sum;
+            if (bound > best) {
+                best = bound;
+                stale = 0;
+            } else if (++ stale >= PATIENCE) {
+                factor /= 2;
+                stale = 0;
+            }
+            // Step towards the target by the degrees over two
+            long norm = 0;
+            for (int v = 0; v < n; ++ v) {
+                norm += (degree[v] - 2) * (degree[v] - 2);
+            }
+            double target = upper != Long.MAX_VALUE ? upper : 1.05 * best + 1;
+            if (norm == 0 || target <= bound) { // the 1-tree is a route
+                break;
+            }
+            double step = factor * (target - bound) / norm;
+            for (int v = 0; v < n; ++ v) {
+                penalty[v] += step * (degree[v] - 2);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the cost of the nearest neighbour route. Required
+     * transitions are followed, other nodes, that have a required
+     * transition into them, are not entered.
+     *
+     * @param graph input graph
+     * @return cost of the route, or {@code Long.MAX_VALUE},
+     *         if the route runs into a dead end
+     */
+    static long nearestNeighbour(Graph graph) {
+        int n = graph.getSize();
+        int[] next = new int[n];
+        boolean[] entered = new boolean[n];
+        Arrays.fill(next, -1);
+        for (Transition transition : graph.getRequired()) {
+            next[transition.getFrom()] = transition.getTo();
+            entered[transition.getTo()] = true;
+        }
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        int current = 0;
+        long cost = 0;
+        for (int step = 1; step < n; ++ step) {
+            int best = next[current];
+            if (best == -1) {
+                long bestCost = Long.MAX_VALUE;
+                for (int k = 0; k < graph.getDegree(current); ++ k) {
+                    int v = graph.getNeighbour(current, k);
+                    long value = graph.getNeighbourCost(current, k);
+                    if (value >= 0 && value < bestCost && ! visited[v] && ! entered[v]) {
+                        best = v;
+                        bestCost = value;
+                    }
+                }
+            }
+            if (best == -1 || visited[best] || graph.getCost(current, best) < 0) {
+                return Long.MAX_VALUE;
+            }
+            cost += graph.getCost(current, best);
+            visited[best] = true;
+            current = best;
+        }
+        long last = graph.getCost(current, 0);
+        if (last < 0 || (next[current] != -1 && next[current] != 0) || (entered[0] && next[current] != 0)) {
+            return Long.MAX_VALUE;
+        }
+        return cost + last;
+    }
+}
@@ -0,0 +1,235 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.PriorityQueue;
+
+/**
+ * Class {@code Governor} keeps the memory of the branch & bound
+ * search within a budget. The search reports its open subproblems,
+ * and the governor compares their size, as well as the live heap
+ * of the whole JVM after the last garbage collection, with the budget.
+ * When the budget nears, the search degrades in steps:
+ * <ol>
+ *     <li>it explores subproblems depth first, so the number
+ *     of open subproblems stops growing;</li>
+ *     <li>waiting subproblems are compressed to records,
+ *     that are restored, when they are needed;</li>
+ *     <li>waiting subproblems are dropped, and the best route
+ *     found so far is returned, although it is not proven.</li>
+ * </ol>
+ * The first two steps keep the result exact. After the last one,
+ * the lower bound of the incumbent is not raised anymore, so the gap
+ * of the returned route is known.
+ * <p>
+ * A governor belongs to one solve at a time.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Solver
+ * @see com.galaev.tsp.solver.Incumbent
+ */
+public final class Governor {
+
+    /** Default share of the maximum heap, that the search may use */
+    public static final double DEFAULT_SHARE = 0.5;
+
+    /** Level: subproblems are explored best first */
+    public static final int BEST_FIRST = 0;
+
+    /** Level: subproblems are explored depth first */
+    public static final int DEPTH_FIRST = 1;
+
+    /** Level: waiting subproblems are compressed */
+    public static final int COMPRESSED = 2;
+
+    /** Level: the search is stopped, the result is not proven */
+    public static final int STOPPED = 3;
+
+    /** Loads of the budget, at which the levels are reached */
+    private static final double[] LOADS = {0, 0.6, 0.8, 0.95};
+
+    /** Estimated memory of an object header and a few fields */
+    private static final long OVERHEAD = 64;
+
+    /* Memory budget in bytes */
+    private final long budget;
+
+    /* Level of the current or the last solve */
+    private volatile int level;
+
+    /* Subproblems of the current dive, when depth first */
+    private final Deque<Subproblem> deep = new ArrayDeque<>();
+
+    /* Compressed waiting subproblems */
+    private final PriorityQueue<Checkpoint.Record> cold = new PriorityQueue<>();
+
+    /* Estimated memory of the compressed subproblems */
+    private long coldBytes;
+
+    /* Estimated memory of a subproblem of the current instance */
+    private long subproblemBytes;
+
+    /**
+     * Public constructor.
+     * The budget is the default share of the maximum heap.
+     */
+    public Governor() {
+        this((long) (Runtime.getRuntime().maxMemory() * DEFAULT_SHARE));
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param budget memory budget of the search in bytes
+     */
+    public Governor(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Getter for the budget.
+     *
+     * @return memory budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Getter for the level of the search.
+     *
+     * @return highest level reached by the current or the last solve,
+     *         one of {@link #BEST_FIRST}, {@link #DEPTH_FIRST},
+     *         {@link #COMPRESSED} and {@link #STOPPED}
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Prepares the governor for the solve of the instance.
+     *
+     * @param instance input instance
+     */
+    void start(Graph instance) {
+        long size = instance.getSize();
+        subproblemBytes = size * size * (instance.isWide() ? 8 : 4) + size / 8 + 2 * OVERHEAD;
+        deep.clear();
+        cold.clear();
+        coldBytes = 0;
+        level = BEST_FIRST;
+    }
+
+    /**
+     * Measures the memory and degrades the search, if the budget nears.
+     * Waiting subproblems are compressed or dropped here.
+     * Levels are never lowered during a solve.
+     *
+     * @param waiting waiting subproblems
+     * @param pool pool of subproblems
+     * @return level of the search
+     */
+    int check(PriorityQueue<Subproblem> waiting, SubproblemPool pool) {
+        long open = (waiting.size() + deep.size() + pool.getFree()) * subproblemBytes + coldBytes;
+        double load = Math.max((double) open / budget, heapLoad());
+        while (level < STOPPED && load >= LOADS[level + 1]) {
+            ++ level;
+        }
+        if (level == COMPRESSED && ! waiting.isEmpty()) {
+            while (! waiting.isEmpty()) {
+                Subproblem subproblem = waiting.poll();
+                freeze(Solver.record(subproblem));
+                pool.release(subproblem);
+            }
+            pool.trim();
+        } else if (level == STOPPED) {
+            // The lower bound is frozen, so the waiting subproblems are not needed
+            waiting.clear();
+            cold.clear();
+            coldBytes = 0;
+            pool.trim();
+        }
+        return level;
+    }
+
+    /**
+     * Getter for the subproblems of the current dive.
+     *
+     * @return stack of subproblems
+     */
+    Deque<Subproblem> getDeep() {
+        return deep;
+    }
+
+    /**
+     * Getter for the compressed subproblems.
+     *
+     * @return compressed subproblems, best first
+     */
+    PriorityQueue<Checkpoint.Record> getCold() {
+        return cold;
+    }
+
+    /**
+     * Adds the compressed subproblem, e.g. a record of a checkpoint,
+     * that is restored, when it is needed.
+     *
+     * @param record record of the subproblem
+     */
+    void freeze(Checkpoint.Record record) {
+        cold.add(record);
+        coldBytes += bytes(record);
+    }
+
+    /**
+     * Takes the best compressed subproblem.
+     *
+     * @return record of the subproblem
+     */
+    Checkpoint.Record thaw() {
+        Checkpoint.Record record = cold.poll();
+        coldBytes -= bytes(record);
+        return record;
+    }
+
+    /**
+     * Returns the estimated memory of the record.
+     */
+    private static long bytes(Checkpoint.Record record) {
+        return 4 * (record.path.length + record.excluded.length) + 3 * OVERHEAD;
+    }
+
+    /**
+     * Measures the live heap of the JVM after the last garbage collection,
+     * or the used heap, if it is not known, as a share of the maximum heap.
+     *
+     * @return load of the heap
+     */
+    private static double heapLoad() {
+        long used = 0;
+        boolean collected = false;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage usage = memoryPool.getCollectionUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+                collected = true;
+            }
+        }
+        if (! collected) {
+            used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+}
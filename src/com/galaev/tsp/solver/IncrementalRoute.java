@@ -0,0 +1,314 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.EuclideanInstance;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Tour;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Class {@code IncrementalRoute} keeps a route through points
+ * of the plane, e.g. the nodes on the canvas, while the points
+ * are added one by one or moved. A new point is inserted between the two
+ * consecutive nodes, where it adds the least to the route, and the
+ * route is repaired locally: 2-opt moves, that replace a transition
+ * next to a changed node, and moves of a changed node elsewhere.
+ * <p>
+ * The route is a {@link com.galaev.tsp.model.Tour} of the
+ * {@link com.galaev.tsp.model.EuclideanInstance} of the points,
+ * that are created again, when a point is added or moved.
+ * Moves are evaluated in constant time, and the number of moves
+ * of a repair is bounded, so an update takes linear time
+ * instead of a solve of the whole route.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Tour
+ * @see com.galaev.tsp.solver.LiveRoute
+ */
+public final class IncrementalRoute {
+
+    /** Maximum number of moves of a repair */
+    public static final int REPAIR_MOVES = 16;
+
+    /* Number of nodes */
+    private int size;
+
+    /* Coordinates of nodes */
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+
+    /* Instance of the points */
+    private EuclideanInstance graph;
+
+    /* Current route, or null, if there are less than two nodes */
+    private Tour tour;
+
+    /* Nodes, that wait for a repair */
+    private final Deque<Integer> changed = new ArrayDeque<>();
+
+    /* Node, that the next search starts from */
+    private int cursor;
+
+    /**
+     * Getter for the number of nodes.
+     *
+     * @return number of nodes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Removes all the nodes.
+     */
+    public void clear() {
+        size = 0;
+        graph = null;
+        tour = null;
+        cursor = 0;
+        changed.clear();
+    }
+
+    /**
+     * Replaces the nodes and the route, e.g. by the result of a solve.
+     *
+     * @param x abscissas of nodes
+     * @param y ordinates of nodes
+     * @param route route through all the nodes
+     */
+    public void setRoute(double[] x, double[] y, Route route) {
+        if (x.length != y.length || route.getSize() != x.length) {
+            throw new IllegalArgumentException("Route must pass all the nodes");
+        }
+        clear();
+        ensureCapacity(x.length);
+        System.arraycopy(x, 0, this.x, 0, x.length);
+        System.arraycopy(y, 0, this.y, 0, y.length);
+        size = x.length;
+        build(route.toArray());
+    }
+
+    /**
+     * Adds the node to the route and repairs the route around it.
+     *
+     * @param nodeX abscissa of the node
+     * @param nodeY ordinate of the node
+     * @return index of the new node
+     */
+    public int insert(double nodeX, double nodeY) {
+        ensureCapacity(size + 1);
+        int node = size;
+        x[node] = nodeX;
+        y[node] = nodeY;
+        int[] order = new int[size + 1];
+        if (tour == null) {
+            for (int i = 0; i <= size; ++ i) {
+                order[i] = i;
+            }
+            ++ size;
+            build(order);
+            return node;
+        }
+        Tour old = tour;
+        ++ size;
+        graph = points();
+        // Cheapest insertion between the nodes of the old route
+        long best = Long.MAX_VALUE;
+        int position = 0;
+        for (int k = 0; k < node; ++ k) {
+            int a = old.getNode(k);
+            int b = old.next(a);
+            long delta = graph.getCost(a, node) + graph.getCost(node, b) - graph.getCost(a, b);
+            if (delta < best) {
+                best = delta;
+                position = k + 1;
+            }
+        }
+        for (int k = 0; k < node; ++ k) {
+            order[k < position ? k : k + 1] = old.getNode(k);
+        }
+        order[position] = node;
+        tour = new Tour(graph, order);
+        repair(node);
+        return node;
+    }
+
+    /**
+     * Moves the node to the new point and repairs the route around it.
+     *
+     * @param node index of the node
+     * @param nodeX new abscissa of the node
+     * @param nodeY new ordinate of the node
+     */
+    public void move(int node, double nodeX, double nodeY) {
+        if (node < 0 || node >= size) {
+            throw new IllegalArgumentException("No node " + node);
+        }
+        x[node] = nodeX;
+        y[node] = nodeY;
+        if (tour == null) {
+            return;
+        }
+        int[] order = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            order[i] = tour.getNode(i);
+        }
+        build(order);
+        repair(node);
+    }
+
+    /**
+     * Improves the current route by the moves of the repair,
+     * tried at every node in turn, until the time is over,
+     * or no move shortens the route. The search goes on
+     * from the node, where the last one stopped.
+     *
+     * @param time time of the search in nanoseconds
+     * @return true, if the route is changed
+     */
+    public boolean search(long time) {
+        long deadline = System.nanoTime() + time;
+        boolean improved = false;
+        int unchanged = 0;
+        while (unchanged < size && System.nanoTime() < deadline) {
+            cursor = cursor >= size - 1 ? 0 : cursor + 1;
+            if (improve(cursor)) {
+                improved = true;
+                unchanged = 0;
+            } else {
+                ++ unchanged;
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Creates the route, that starts at node 0.
+     *
+     * @return current route and its cost, or null, if there are no nodes
+     */
+    public Route getRoute() {
+        if (size == 0) {
+            return null;
+        }
+        return tour == null ? new Route(0, new int[] {0}) : tour.toRoute();
+    }
+
+    /**
+     * Improves the route around the changed node by a bounded number of moves.
+     * Nodes, that get new transitions by a move, are repaired next.
+     *
+     * @param node changed node
+     */
+    private void repair(int node) {
+        changed.clear();
+        changed.add(node);
+        int moves = 0;
+        while (! changed.isEmpty() && moves < REPAIR_MOVES) {
+            if (improve(changed.poll())) {
+                ++ moves;
+            }
+        }
+        changed.clear();
+    }
+
+    /**
+     * Applies the best of the moves, that change a transition
+     * of the node, if it shortens the route.
+     *
+     * @param node node to repair
+     * @return true, if the route is changed
+     */
+    private boolean improve(int node) {
+        if (size < 4) {
+            return false;
+        }
+        int p = tour.getPosition(node);
+        int before = p == 0 ? size - 1 : p - 1;
+        // 2-opt moves, that replace one of the transitions of the node
+        long best = 0;
+        int bestLo = -1;
+        int bestHi = -1;
+        for (int i : new int[] {before, p}) {
+            for (int j = 0; j < size; ++ j) {
+                int lo = Math.min(i, j);
+                int hi = Math.max(i, j);
+                if (hi - lo < 2 || lo == 0 && hi == size - 1) { // transitions are adjacent
+                    continue;
+                }
+                long delta = tour.twoOptDelta(lo, hi);
+                if (delta < best) {
+                    best = delta;
+                    bestLo = lo;
+                    bestHi = hi;
+                }
+            }
+        }
+        // Move of the node between two other nodes
+        int bestK = -1;
+        for (int k = 0; k < size; ++ k) {
+            if (k == before || k == p) {
+                continue;
+            }
+            long delta = tour.orOptDelta(p, 1, k);
+            if (delta < best) {
+                best = delta;
+                bestK = k;
+            }
+        }
+        if (bestK >= 0) {
+            int a = tour.getNode(bestK);
+            enqueue(tour.previous(node), tour.next(node), a, tour.next(a));
+            tour.orOpt(p, 1, bestK);
+            return true;
+        }
+        if (bestLo >= 0) {
+            int c = tour.getNode(bestHi);
+            enqueue(tour.getNode(bestLo), tour.getNode(bestLo + 1), c, tour.next(c));
+            tour.twoOpt(bestLo, bestHi);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the tour of the nodes in the given order.
+     *
+     * @param order all the nodes in order
+     */
+    private void build(int[] order) {
+        graph = points();
+        tour = size < 2 ? null : new Tour(graph, order);
+    }
+
+    /**
+     * Creates the instance of the points of the nodes.
+     */
+    private EuclideanInstance points() {
+        return new EuclideanInstance(Arrays.copyOf(x, size), Arrays.copyOf(y, size));
+    }
+
+    /**
+     * Adds the nodes to the ones, that wait for a repair.
+     */
+    private void enqueue(int... nodes) {
+        for (int node : nodes) {
+            if (! changed.contains(node)) {
+                changed.add(node);
+            }
+        }
+    }
+
+    /**
+     * Grows the arrays, so they hold the given number of nodes.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > x.length) {
+            int length = Math.max(capacity, 2 * x.length);
+            x = Arrays.copyOf(x, length);
+            y = Arrays.copyOf(y, length);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Route;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class {@code Incumbent} holds the bounds of the cost of the best
+ * route, that are shared between engines, that solve one instance
+ * concurrently. Engines offer the routes they find, so the upper
+ * bound is the cost of the best route found so far. The exact
+ * solver raises the lower bound, that it has proven, and prunes
+ * subproblems, that cannot beat the upper bound.
+ * <p>
+ * The route is accepted, when its cost is within the target gap
+ * over the lower bound. The gap of zero accepts only a route,
+ * that is proven to be the best one.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Portfolio
+ * @see com.galaev.tsp.solver.Solver
+ */
+public final class Incumbent {
+
+    /* Target gap, as a fraction of the lower bound */
+    private final double gap;
+
+    /* Best route found so far */
+    private volatile Route route;
+
+    /* Cost of the best route, or Long.MAX_VALUE if there is none */
+    private volatile long upper = Long.MAX_VALUE;
+
+    /* Proven lower bound of the cost of any route */
+    private final AtomicLong lower = new AtomicLong();
+
+    /**
+     * Public constructor.
+     * Only the best route is accepted.
+     */
+    public Incumbent() {
+        this(0);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param gap target gap, as a fraction of the lower bound,
+     *            e.g. 0.01 accepts routes within one percent
+     */
+    public Incumbent(double gap) {
+        if (gap < 0) {
+            throw new IllegalArgumentException("Gap must not be negative");
+        }
+        this.gap = gap;
+    }
+
+    /**
+     * Getter for the best route.
+     *
+     * @return best route found so far, or null; it may cost more,
+     *         than the upper bound, if the bound was tightened
+     */
+    public Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Getter for the upper bound.
+     *
+     * @return cost of the best route found so far,
+     *         or {@code Long.MAX_VALUE}, if there is none
+     */
+    public long getUpper() {
+        return upper;
+    }
+
+    /**
+     * Getter for the lower bound.
+     *
+     * @return proven lower bound of the cost of any route
+     */
+    public long getLower() {
+        return lower.get();
+    }
+
+    /**
+     * Returns the gap between the bounds, as a fraction
+     * of the lower bound, e.g. when the search is stopped
+     * by the {@link com.galaev.tsp.solver.Governor}.
+     *
+     * @return relative gap, or {@code Double.POSITIVE_INFINITY},
+     *         if there is no route
+     */
+    public double getGap() {
+        long cost = upper;
+        long bound = lower.get();
+        if (cost == Long.MAX_VALUE) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return bound == 0 ? (cost == 0 ? 0 : Double.POSITIVE_INFINITY) : (double) (cost - bound) / bound;
+    }
+
+    /**
+     * Offers the route, that becomes the best one,
+     * if it is cheaper than the best route so far.
+     *
+     * @param route found route, or null
+     * @return true, if the route is the best one now
+     */
+    public synchronized boolean offer(Route route) {
+        if (route == null || route.getCost() >= upper) {
+            return false;
+        }
+        this.route = route;
+        upper = route.getCost();
+        return true;
+    }
+
+    /**
+     * Lowers the upper bound to the cost of a route, that was found
+     * elsewhere, e.g. by another process, so the route itself is not known.
+     *
+     * @param cost cost of the route
+     * @return true, if the upper bound is lowered
+     */
+    public synchronized boolean tighten(long cost) {
+        if (cost >= upper) {
+            return false;
+        }
+        upper = cost;
+        return true;
+    }
+
+    /**
+     * Raises the lower bound, unless it is higher already.
+     *
+     * @param bound proven lower bound of the cost of any route
+     */
+    public void raiseLower(long bound) {
+        long current = lower.get();
+        while (bound > current && ! lower.compareAndSet(current, bound)) {
+            current = lower.get();
+        }
+    }
+
+    /**
+     * Checks, whether the best route is within the target gap.
+     *
+     * @return true, if the best route is accepted
+     */
+    public boolean isAccepted() {
+        long cost = upper;
+        long bound = lower.get();
+        return cost != Long.MAX_VALUE && cost - bound <= gap * bound;
+    }
+}
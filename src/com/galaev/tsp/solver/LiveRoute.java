@@ -0,0 +1,211 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Route;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class {@code LiveRoute} keeps an {@link com.galaev.tsp.solver.IncrementalRoute}
+ * on a background thread, so the route follows the nodes on the canvas,
+ * while they are added and dragged, and the caller is never blocked.
+ * Changes are queued and applied in order, and each of them is followed
+ * by a short local search, that starts from the current route.
+ * <p>
+ * Moves of the nodes are coalesced: when the search is slower, than
+ * the mouse, only the latest point of each node is applied. After the
+ * changes, the route is published, and the listener is notified.
+ * Routes, that were found before the nodes were cleared, are not published.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.IncrementalRoute
+ */
+public final class LiveRoute {
+
+    /** Default time of the search after a change, in milliseconds */
+    public static final long DEFAULT_FRAME = 5;
+
+    /**
+     * Interface {@code Listener} is notified on the background
+     * thread, when a new route is published.
+     */
+    public interface Listener {
+
+        /**
+         * Called, when a new route is published.
+         *
+         * @param route new route
+         */
+        void changed(Route route);
+    }
+
+    /** Thread for routes, that does not keep the application alive */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "live-route");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /* Route, that is changed on the background thread only */
+    private final IncrementalRoute route = new IncrementalRoute();
+
+    /* Listener of new routes */
+    private final Listener listener;
+
+    /* Time of the search after a change, in nanoseconds */
+    private final long frame;
+
+    /* Latest points of moved nodes, that are not applied yet */
+    private final Map<Integer, double[]> moves = new ConcurrentHashMap<>();
+
+    /* Whether the moves are going to be applied */
+    private final AtomicBoolean moving = new AtomicBoolean();
+
+    /* Number of times the nodes were cleared */
+    private int epoch;
+
+    /* Number of clears, that are applied to the route */
+    private int cleared;
+
+    /* Latest published route */
+    private Route latest;
+
+    /**
+     * Public constructor.
+     * The search takes the default time.
+     *
+     * @param listener listener of new routes
+     */
+    public LiveRoute(Listener listener) {
+        this(listener, DEFAULT_FRAME);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param listener listener of new routes
+     * @param frame time of the search after a change, in milliseconds
+     */
+    public LiveRoute(Listener listener, long frame) {
+        this.listener = listener;
+        this.frame = TimeUnit.MILLISECONDS.toNanos(frame);
+    }
+
+    /**
+     * Getter for the latest route.
+     *
+     * @return latest published route, or null,
+     *         if there is none since the nodes were cleared
+     */
+    public synchronized Route getRoute() {
+        return latest;
+    }
+
+    /**
+     * Removes all the nodes.
+     */
+    public void clear() {
+        final int current;
+        synchronized (this) {
+            current = ++ epoch;
+            latest = null;
+        }
+        moves.clear();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                route.clear();
+                cleared = current;
+            }
+        });
+    }
+
+    /**
+     * Replaces the nodes and the route, e.g. by the result of a solve.
+     * The route is not published, until the next change.
+     *
+     * @param x abscissas of nodes
+     * @param y ordinates of nodes
+     * @param result route through all the nodes
+     */
+    public void setRoute(double[] x, double[] y, final Route result) {
+        final double[] nodesX = x.clone();
+        final double[] nodesY = y.clone();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                route.setRoute(nodesX, nodesY, result);
+            }
+        });
+    }
+
+    /**
+     * Adds the node to the route.
+     * Nodes are numbered in the order they are added.
+     *
+     * @param x abscissa of the node
+     * @param y ordinate of the node
+     */
+    public void insert(final double x, final double y) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                route.insert(x, y);
+                route.search(frame);
+                publish();
+            }
+        });
+    }
+
+    /**
+     * Moves the node to the new point.
+     *
+     * @param node index of the node
+     * @param x new abscissa of the node
+     * @param y new ordinate of the node
+     */
+    public void move(int node, double x, double y) {
+        moves.put(node, new double[] {x, y});
+        if (moving.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Moves, that come from now on, are applied next time
+                    moving.set(false);
+                    for (Integer node : moves.keySet()) {
+                        // The point is taken by the key, so a newer point of the node is not lost
+                        double[] point = moves.remove(node);
+                        if (point != null && node < route.getSize()) {
+                            route.move(node, point[0], point[1]);
+                        }
+                    }
+                    route.search(frame);
+                    publish();
+                }
+            });
+        }
+    }
+
+    /**
+     * Publishes the current route, unless the nodes
+     * were cleared, and the route is not cleared yet.
+     */
+    private void publish() {
+        Route result = route.getRoute();
+        synchronized (this) {
+            if (cleared != epoch) {
+                return;
+            }
+            latest = result;
+        }
+        listener.changed(result);
+    }
+}
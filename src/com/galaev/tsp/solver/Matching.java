@@ -0,0 +1,789 @@
+package com.galaev.tsp.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class {@code Matching} finds the maximum weight matching
+ * of a general graph by Edmonds' blossom algorithm with
+ * dual variables, in {@code O(n^3)} time. Odd cycles of tight
+ * edges are contracted into blossoms, that are expanded back,
+ * when their dual variables drop to zero or the search ends.
+ * All computations are performed in long integers, and they
+ * are exact, since weights are integers.
+ * <p>
+ * Vertices are numbered from 0, blossoms are numbered from
+ * the number of vertices. Edge {@code k} has two endpoints:
+ * {@code 2k} is its first vertex and {@code 2k + 1} is the second one.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Christofides
+ */
+final class Matching {
+
+    /* Edges */
+    private final int[] first;
+    private final int[] second;
+    private final long[] weights;
+
+    /* Number of vertices and edges */
+    private final int vertices;
+    private final int edges;
+
+    /* Vertex of each endpoint */
+    private final int[] endpoint;
+
+    /* Endpoints of edges, that lead out of each vertex */
+    private final int[][] neighbours;
+
+    /* Remote endpoint of the matched edge of each vertex, or -1 */
+    private final int[] mate;
+
+    /* Label of each top-level blossom: 0 is free, 1 is S, 2 is T */
+    private final int[] label;
+
+    /* Endpoint, through which the label was assigned, or -1 */
+    private final int[] labelEnd;
+
+    /* Top-level blossom of each vertex */
+    private final int[] inBlossom;
+
+    /* Parent blossom of each blossom, or -1 */
+    private final int[] blossomParent;
+
+    /* Sub-blossoms of each blossom, starting from the base */
+    private final int[][] blossomChildren;
+
+    /* Base vertex of each blossom, or -1 for unused blossoms */
+    private final int[] blossomBase;
+
+    /* Endpoints of edges, that connect the sub-blossoms */
+    private final int[][] blossomEndpoints;
+
+    /* Least slack edge to a different S-blossom, or -1 */
+    private final int[] bestEdge;
+
+    /* Least slack edges to neighbouring S-blossoms of each S-blossom */
+    private final int[][] blossomBestEdges;
+
+    /* Blossom numbers, that are not used */
+    private final int[] unused;
+    private int unusedCount;
+
+    /* Dual variables of vertices and blossoms */
+    private final long[] dual;
+
+    /* Whether each edge has zero slack */
+    private final boolean[] allowed;
+
+    /* Vertices to scan */
+    private final IntList queue = new IntList();
+
+    /**
+     * Private constructor.
+     *
+     * @param vertices number of vertices
+     * @param first first vertices of edges
+     * @param second second vertices of edges
+     * @param weights weights of edges
+     */
+    private Matching(int vertices, int[] first, int[] second, long[] weights) {
+        this.vertices = vertices;
+        this.first = first;
+        this.second = second;
+        this.weights = weights;
+        edges = weights.length;
+        long max = 0;
+        for (long weight : weights) {
+            max = Math.max(max, weight);
+        }
+        endpoint = new int[2 * edges];
+        int[] degree = new int[vertices];
+        for (int k = 0; k < edges; ++ k) {
+            endpoint[2 * k] = first[k];
+            endpoint[2 * k + 1] = second[k];
+            ++ degree[first[k]];
+            ++ degree[second[k]];
+        }
+        neighbours = new int[vertices][];
+        for (int v = 0; v < vertices; ++ v) {
+            neighbours[v] = new int[degree[v]];
+            degree[v] = 0;
+        }
+        for (int k = 0; k < edges; ++ k) {
+            neighbours[first[k]][degree[first[k]]++] = 2 * k + 1;
+            neighbours[second[k]][degree[second[k]]++] = 2 * k;
+        }
+        mate = new int[vertices];
+        Arrays.fill(mate, -1);
+        label = new int[2 * vertices];
+        labelEnd = new int[2 * vertices];
+        Arrays.fill(labelEnd, -1);
+        inBlossom = new int[vertices];
+        blossomParent = new int[2 * vertices];
+        Arrays.fill(blossomParent, -1);
+        blossomChildren = new int[2 * vertices][];
+        blossomBase = new int[2 * vertices];
+        Arrays.fill(blossomBase, -1);
+        for (int v = 0; v < vertices; ++ v) {
+            inBlossom[v] = v;
+            blossomBase[v] = v;
+        }
+        blossomEndpoints = new int[2 * vertices][];
+        bestEdge = new int[2 * vertices];
+        Arrays.fill(bestEdge, -1);
+        blossomBestEdges = new int[2 * vertices][];
+        unused = new int[vertices];
+        for (int b = 0; b < vertices; ++ b) {
+            unused[b] = vertices + b;
+        }
+        unusedCount = vertices;
+        dual = new long[2 * vertices];
+        Arrays.fill(dual, 0, vertices, max);
+        allowed = new boolean[edges];
+    }
+
+    /**
+     * Finds the perfect matching of the least total cost
+     * of a complete graph, that has an even number of vertices.
+     * Blocked edges, that have negative cost, are not used.
+     *
+     * @param costs costs of edges, row by row, that are symmetric
+     * @param size number of vertices
+     * @return mate of each vertex, or null, if there is no perfect matching
+     */
+    static int[] minCostPerfect(long[] costs, int size) {
+        // Maximum cardinality matching of weights, that
+        // decrease with costs, is the cheapest perfect one
+        long max = 0;
+        int count = 0;
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                if (costs[i * size + j] >= 0) {
+                    max = Math.max(max, costs[i * size + j]);
+                    ++ count;
+                }
+            }
+        }
+        int[] first = new int[count];
+        int[] second = new int[count];
+        long[] weights = new long[count];
+        int k = 0;
+        for (int i = 0; i < size; ++ i) {
+            for (int j = i + 1; j < size; ++ j) {
+                if (costs[i * size + j] >= 0) {
+                    first[k] = i;
+                    second[k] = j;
+                    weights[k] = max + 1 - costs[i * size + j];
+                    ++ k;
+                }
+            }
+        }
+        int[] mates = new Matching(size, first, second, weights).solve();
+        for (int v = 0; v < size; ++ v) {
+            if (mates[v] == -1) {
+                return null;
+            }
+        }
+        return mates;
+    }
+
+    /**
+     * Returns the slack of the edge.
+     */
+    private long slack(int k) {
+        return dual[first[k]] + dual[second[k]] - 2 * weights[k];
+    }
+
+    /**
+     * Collects the vertices of the blossom.
+     */
+    private void leaves(int b, IntList out) {
+        if (b < vertices) {
+            out.add(b);
+            return;
+        }
+        for (int t : blossomChildren[b]) {
+            leaves(t, out);
+        }
+    }
+
+    /**
+     * Returns the element of the array, where negative
+     * indices are counted from the end.
+     */
+    private static int at(int[] array, int index) {
+        return array[index < 0 ? index + array.length : index];
+    }
+
+    /**
+     * Returns the position of the value in the array.
+     */
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; ++ i) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Labels the vertex and its top-level blossom.
+     * T-blossoms also label their mates as S-blossoms.
+     *
+     * @param w vertex
+     * @param t label
+     * @param p endpoint, through which the label is assigned
+     */
+    private void assignLabel(int w, int t, int p) {
+        while (true) {
+            int b = inBlossom[w];
+            label[w] = label[b] = t;
+            labelEnd[w] = labelEnd[b] = p;
+            bestEdge[w] = bestEdge[b] = -1;
+            if (t == 1) {
+                leaves(b, queue);
+                return;
+            }
+            int base = blossomBase[b];
+            w = endpoint[mate[base]];
+            t = 1;
+            p = mate[base] ^ 1;
+        }
+    }
+
+    /**
+     * Traces back from the vertices to find either
+     * a new blossom or an augmenting path.
+     *
+     * @return base vertex of the new blossom, or -1
+     */
+    private int scanBlossom(int v, int w) {
+        IntList path = new IntList();
+        int base = -1;
+        while (v != -1 || w != -1) {
+            int b = inBlossom[v];
+            if ((label[b] & 4) != 0) {
+                base = blossomBase[b];
+                break;
+            }
+            path.add(b);
+            label[b] = 5;
+            if (labelEnd[b] == -1) {
+                v = -1;
+            } else {
+                v = endpoint[labelEnd[b]];
+                b = inBlossom[v];
+                v = endpoint[labelEnd[b]];
+            }
+            if (w != -1) {
+                int swap = v;
+                v = w;
+                w = swap;
+            }
+        }
+        for (int i = 0; i < path.size(); ++ i) {
+            label[path.get(i)] = 1;
+        }
+        return base;
+    }
+
+    /**
+     * Contracts the odd cycle, that is closed by the edge,
+     * into a new S-blossom with the given base.
+     */
+    private void addBlossom(int base, int k) {
+        int v = first[k];
+        int w = second[k];
+        int bb = inBlossom[base];
+        int bv = inBlossom[v];
+        int bw = inBlossom[w];
+        int b = unused[-- unusedCount];
+        blossomBase[b] = base;
+        blossomParent[b] = -1;
+        blossomParent[bb] = b;
+        IntList path = new IntList();
+        IntList ends = new IntList();
+        while (bv != bb) {
+            blossomParent[bv] = b;
+            path.add(bv);
+            ends.add(labelEnd[bv]);
+            v = endpoint[labelEnd[bv]];
+            bv = inBlossom[v];
+        }
+        path.add(bb);
+        path.reverse();
+        ends.reverse();
+        ends.add(2 * k);
+        while (bw != bb) {
+            blossomParent[bw] = b;
+            path.add(bw);
+            ends.add(labelEnd[bw] ^ 1);
+            w = endpoint[labelEnd[bw]];
+            bw = inBlossom[w];
+        }
+        blossomChildren[b] = path.toArray();
+        blossomEndpoints[b] = ends.toArray();
+        label[b] = 1;
+        labelEnd[b] = labelEnd[bb];
+        dual[b] = 0;
+        IntList leaves = new IntList();
+        leaves(b, leaves);
+        for (int i = 0; i < leaves.size(); ++ i) {
+            int leaf = leaves.get(i);
+            if (label[inBlossom[leaf]] == 2) {
+                queue.add(leaf);
+            }
+            inBlossom[leaf] = b;
+        }
+        // Least slack edges to other S-blossoms
+        int[] bestTo = new int[2 * vertices];
+        Arrays.fill(bestTo, -1);
+        for (int child : blossomChildren[b]) {
+            List<int[]> lists = new ArrayList<>();
+            if (blossomBestEdges[child] == null) {
+                IntList childLeaves = new IntList();
+                leaves(child, childLeaves);
+                for (int i = 0; i < childLeaves.size(); ++ i) {
+                    int[] ends2 = neighbours[childLeaves.get(i)];
+                    int[] list = new int[ends2.length];
+                    for (int j = 0; j < ends2.length; ++ j) {
+                        list[j] = ends2[j] / 2;
+                    }
+                    lists.add(list);
+                }
+            } else {
+                lists.add(blossomBestEdges[child]);
+            }
+            for (int[] list : lists) {
+                for (int e : list) {
+                    int j = second[e];
+                    if (inBlossom[j] == b) {
+                        j = first[e];
+                    }
+                    int bj = inBlossom[j];
+                    if (bj != b && label[bj] == 1 &&
+                            (bestTo[bj] == -1 || slack(e) < slack(bestTo[bj]))) {
+                        bestTo[bj] = e;
+                    }
+                }
+            }
+            blossomBestEdges[child] = null;
+            bestEdge[child] = -1;
+        }
+        IntList best = new IntList();
+        for (int e : bestTo) {
+            if (e != -1) {
+                best.add(e);
+            }
+        }
+        blossomBestEdges[b] = best.toArray();
+        bestEdge[b] = -1;
+        for (int e : blossomBestEdges[b]) {
+            if (bestEdge[b] == -1 || slack(e) < slack(bestEdge[b])) {
+                bestEdge[b] = e;
+            }
+        }
+    }
+
+    /**
+     * Expands the top-level blossom into its sub-blossoms.
+     *
+     * @param b blossom
+     * @param end whether the stage is over, so the labels are not needed
+     */
+    private void expandBlossom(int b, boolean end) {
+        for (int s : blossomChildren[b]) {
+            blossomParent[s] = -1;
+            if (s < vertices) {
+                inBlossom[s] = s;
+            } else if (end && dual[s] == 0) {
+                expandBlossom(s, true);
+            } else {
+                IntList leaves = new IntList();
+                leaves(s, leaves);
+                for (int i = 0; i < leaves.size(); ++ i) {
+                    inBlossom[leaves.get(i)] = s;
+                }
+            }
+        }
+        if (! end && label[b] == 2) {
+            // Relabel the sub-blossoms on the even path from the entry to the base
+            int[] children = blossomChildren[b];
+            int[] ends = blossomEndpoints[b];
+            int entry = inBlossom[endpoint[labelEnd[b] ^ 1]];
+            int j = indexOf(children, entry);
+            int step;
+            int trick;
+            if ((j & 1) != 0) {
+                j -= children.length;
+                step = 1;
+                trick = 0;
+            } else {
+                step = -1;
+                trick = 1;
+            }
+            int p = labelEnd[b];
+            while (j != 0) {
+                label[endpoint[p ^ 1]] = 0;
+                label[endpoint[at(ends, j - trick) ^ trick ^ 1]] = 0;
+                assignLabel(endpoint[p ^ 1], 2, p);
+                allowed[at(ends, j - trick) / 2] = true;
+                j += step;
+                p = at(ends, j - trick) ^ trick;
+                allowed[p / 2] = true;
+                j += step;
+            }
+            int bv = at(children, j);
+            label[endpoint[p ^ 1]] = label[bv] = 2;
+            labelEnd[endpoint[p ^ 1]] = labelEnd[bv] = p;
+            bestEdge[bv] = -1;
+            j += step;
+            while (at(children, j) != entry) {
+                bv = at(children, j);
+                if (label[bv] == 1) {
+                    j += step;
+                    continue;
+                }
+                IntList leaves = new IntList();
+                leaves(bv, leaves);
+                int v = -1;
+                for (int i = 0; i < leaves.size(); ++ i) {
+                    if (label[leaves.get(i)] != 0) {
+                        v = leaves.get(i);
+                        break;
+                    }
+                }
+                if (v != -1) {
+                    label[v] = 0;
+                    label[endpoint[mate[blossomBase[bv]]]] = 0;
+                    assignLabel(v, 2, labelEnd[v]);
+                }
+                j += step;
+            }
+        }
+        label[b] = labelEnd[b] = -1;
+        blossomChildren[b] = blossomEndpoints[b] = null;
+        blossomBase[b] = -1;
+        blossomBestEdges[b] = null;
+        bestEdge[b] = -1;
+        unused[unusedCount++] = b;
+    }
+
+    /**
+     * Swaps matched and unmatched edges on the path through
+     * the blossom from the vertex to the base, so the vertex
+     * becomes the new base.
+     */
+    private void augmentBlossom(int b, int v) {
+        int t = v;
+        while (blossomParent[t] != b) {
+            t = blossomParent[t];
+        }
+        if (t >= vertices) {
+            augmentBlossom(t, v);
+        }
+        int[] children = blossomChildren[b];
+        int[] ends = blossomEndpoints[b];
+        int i = indexOf(children, t);
+        int j = i;
+        int step;
+        int trick;
+        if ((i & 1) != 0) {
+            j -= children.length;
+            step = 1;
+            trick = 0;
+        } else {
+            step = -1;
+            trick = 1;
+        }
+        while (j != 0) {
+            j += step;
+            t = at(children, j);
+            int p = at(ends, j - trick) ^ trick;
+            if (t >= vertices) {
+                augmentBlossom(t, endpoint[p]);
+            }
+            j += step;
+            t = at(children, j);
+            if (t >= vertices) {
+                augmentBlossom(t, endpoint[p ^ 1]);
+            }
+            mate[endpoint[p]] = p ^ 1;
+            mate[endpoint[p ^ 1]] = p;
+        }
+        // Rotate, so the new base goes first
+        blossomChildren[b] = rotate(children, i);
+        blossomEndpoints[b] = rotate(ends, i);
+        blossomBase[b] = blossomBase[blossomChildren[b][0]];
+    }
+
+    /**
+     * Returns the array, rotated to the left by the given shift.
+     */
+    private static int[] rotate(int[] array, int shift) {
+        int[] result = new int[array.length];
+        System.arraycopy(array, shift, result, 0, array.length - shift);
+        System.arraycopy(array, 0, result, array.length - shift, shift);
+        return result;
+    }
+
+    /**
+     * Swaps matched and unmatched edges along
+     * the augmenting path through the edge.
+     */
+    private void augmentMatching(int k) {
+        for (int side = 0; side < 2; ++ side) {
+            int s = side == 0 ? first[k] : second[k];
+            int p = side == 0 ? 2 * k + 1 : 2 * k;
+            while (true) {
+                int bs = inBlossom[s];
+                if (bs >= vertices) {
+                    augmentBlossom(bs, s);
+                }
+                mate[s] = p;
+                if (labelEnd[bs] == -1) {
+                    break;
+                }
+                int t = endpoint[labelEnd[bs]];
+                int bt = inBlossom[t];
+                s = endpoint[labelEnd[bt]];
+                int j = endpoint[labelEnd[bt] ^ 1];
+                if (bt >= vertices) {
+                    augmentBlossom(bt, j);
+                }
+                mate[j] = labelEnd[bt];
+                p = labelEnd[bt] ^ 1;
+            }
+        }
+    }
+
+    /**
+     * Finds the maximum weight matching among
+     * the matchings of maximum cardinality.
+     *
+     * @return mate of each vertex, or -1
+     */
+    private int[] solve() {
+        for (int stage = 0; stage < vertices; ++ stage) {
+            Arrays.fill(label, 0);
+            Arrays.fill(bestEdge, -1);
+            Arrays.fill(blossomBestEdges, vertices, 2 * vertices, null);
+            Arrays.fill(allowed, false);
+            queue.clear();
+            for (int v = 0; v < vertices; ++ v) {
+                if (mate[v] == -1 && label[inBlossom[v]] == 0) {
+                    assignLabel(v, 1, -1);
+                }
+            }
+            boolean augmented = false;
+            while (true) {
+                // Growing the alternating trees
+                while (queue.size() > 0 && ! augmented) {
+                    int v = queue.pop();
+                    for (int p : neighbours[v]) {
+                        int k = p / 2;
+                        int w = endpoint[p];
+                        if (inBlossom[v] == inBlossom[w]) {
+                            continue;
+                        }
+                        long kslack = 0;
+                        if (! allowed[k]) {
+                            kslack = slack(k);
+                            if (kslack <= 0) {
+                                allowed[k] = true;
+                            }
+                        }
+                        if (allowed[k]) {
+                            if (label[inBlossom[w]] == 0) {
+                                assignLabel(w, 2, p ^ 1);
+                            } else if (label[inBlossom[w]] == 1) {
+                                int base = scanBlossom(v, w);
+                                if (base >= 0) {
+                                    addBlossom(base, k);
+                                } else {
+                                    augmentMatching(k);
+                                    augmented = true;
+                                    break;
+                                }
+                            } else if (label[w] == 0) {
+                                label[w] = 2;
+                                labelEnd[w] = p ^ 1;
+                            }
+                        } else if (label[inBlossom[w]] == 1) {
+                            int b = inBlossom[v];
+                            if (bestEdge[b] == -1 || kslack < slack(bestEdge[b])) {
+                                bestEdge[b] = k;
+                            }
+                        } else if (label[w] == 0) {
+                            if (bestEdge[w] == -1 || kslack < slack(bestEdge[w])) {
+                                bestEdge[w] = k;
+                            }
+                        }
+                    }
+                }
+                if (augmented) {
+                    break;
+                }
+                // Changing dual variables
+                int type = -1;
+                long delta = 0;
+                int deltaEdge = -1;
+                int deltaBlossom = -1;
+                for (int v = 0; v < vertices; ++ v) {
+                    if (label[inBlossom[v]] == 0 && bestEdge[v] != -1) {
+                        long d = slack(bestEdge[v]);
+                        if (type == -1 || d < delta) {
+                            delta = d;
+                            type = 2;
+                            deltaEdge = bestEdge[v];
+                        }
+                    }
+                }
+                for (int b = 0; b < 2 * vertices; ++ b) {
+                    if (blossomParent[b] == -1 && label[b] == 1 && bestEdge[b] != -1) {
+                        long d = slack(bestEdge[b]) / 2;
+                        if (type == -1 || d < delta) {
+                            delta = d;
+                            type = 3;
+                            deltaEdge = bestEdge[b];
+                        }
+                    }
+                }
+                for (int b = vertices; b < 2 * vertices; ++ b) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1 && label[b] == 2 &&
+                            (type == -1 || dual[b] < delta)) {
+                        delta = dual[b];
+                        type = 4;
+                        deltaBlossom = b;
+                    }
+                }
+                if (type == -1) {
+                    // No further improvement is possible
+                    type = 1;
+                    long min = Long.MAX_VALUE;
+                    for (int v = 0; v < vertices; ++ v) {
+                        min = Math.min(min, dual[v]);
+                    }
+                    delta = Math.max(0, min);
+                }
+                for (int v = 0; v < vertices; ++ v) {
+                    if (label[inBlossom[v]] == 1) {
+                        dual[v] -= delta;
+                    } else if (label[inBlossom[v]] == 2) {
+                        dual[v] += delta;
+                    }
+                }
+                for (int b = vertices; b < 2 * vertices; ++ b) {
+                    if (blossomBase[b] >= 0 && blossomParent[b] == -1) {
+                        if (label[b] == 1) {
+                            dual[b] += delta;
+                        } else if (label[b] == 2) {
+                            dual[b] -= delta;
+                        }
+                    }
+                }
+                if (type == 1) {
+                    break;
+                } else if (type == 2) {
+                    allowed[deltaEdge] = true;
+                    int i = first[deltaEdge];
+                    if (label[inBlossom[i]] == 0) {
+                        i = second[deltaEdge];
+                    }
+                    queue.add(i);
+                } else if (type == 3) {
+                    allowed[deltaEdge] = true;
+                    queue.add(first[deltaEdge]);
+                } else {
+                    expandBlossom(deltaBlossom, false);
+                }
+            }
+            if (! augmented) {
+                break;
+            }
+            // Expanding S-blossoms with zero dual variables
+            for (int b = vertices; b < 2 * vertices; ++ b) {
+                if (blossomParent[b] == -1 && blossomBase[b] >= 0 &&
+                        label[b] == 1 && dual[b] == 0) {
+                    expandBlossom(b, true);
+                }
+            }
+        }
+        int[] result = new int[vertices];
+        for (int v = 0; v < vertices; ++ v) {
+            result[v] = mate[v] >= 0 ? endpoint[mate[v]] : -1;
+        }
+        return result;
+    }
+
+    /**
+     * Growable list of integers.
+     */
+    private static class IntList {
+
+        /* Storage */
+        private int[] values = new int[16];
+
+        /* Number of values */
+        private int size;
+
+        /**
+         * Adds the value to the end.
+         */
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Removes the last value and returns it.
+         */
+        int pop() {
+            return values[-- size];
+        }
+
+        /**
+         * Returns the value with the given index.
+         */
+        int get(int index) {
+            return values[index];
+        }
+
+        /**
+         * Returns the number of values.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Removes all the values.
+         */
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * Reverses the order of the values.
+         */
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; ++ i, -- j) {
+                int swap = values[i];
+                values[i] = values[j];
+                values[j] = swap;
+            }
+        }
+
+        /**
+         * Returns the values as an array.
+         */
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Instance;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code NeighbourhoodSearch} provides large neighbourhood
+ * search, that improves a route of a large graph by the exact
+ * {@link com.galaev.tsp.solver.Solver}. A window of consecutive
+ * nodes of the route is cut out, and the best path through
+ * the nodes of the window between the fixed nodes on both sides
+ * of it is found exactly. If the path is cheaper, it is spliced
+ * into the route instead of the window.
+ * <p>
+ * The path is found as the route of a small instance, where
+ * node 0 stands for the rest of the route: transitions from it
+ * lead out of the node before the window, transitions to it lead
+ * into the node after the window. Windows of a single pass do not
+ * overlap, so they are solved in parallel. Passes shift the windows,
+ * until none of the shifts improves the route.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.solver.Solver
+ */
+public class NeighbourhoodSearch implements Engine {
+
+    /** Default number of nodes in a window */
+    public static final int DEFAULT_WINDOW = 10;
+
+    /** Pool of threads for parallel windows */
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    /* Engine, that finds the initial route */
+    private final Engine start;
+
+    /* Number of nodes in a window */
+    private final int window;
+
+    /**
+     * Public constructor.
+     * Creates the search with the default window,
+     * that improves routes of beam search.
+     */
+    public NeighbourhoodSearch() {
+        this(new BeamSearch(), DEFAULT_WINDOW);
+    }
+
+    /**
+     * Public constructor.
+     * Larger windows give better routes, but the time
+     * of the exact solve grows exponentially with them.
+     *
+     * @param start engine, that finds the initial route
+     * @param window number of nodes in a window
+     */
+    public NeighbourhoodSearch(Engine start, int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must have at least two nodes");
+        }
+        this.start = start;
+        this.window = window;
+    }
+
+    /**
+     * A method for processing the input graph.
+     * Finds the initial route, then improves it.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    @Override
+    public Route process(Graph graph) {
+        Route route = start.process(graph);
+        return route == null ? null : improve(graph, route);
+    }
+
+    /**
+     * A method for processing the input graph, that offers
+     * the initial route and each improved route to the incumbent,
+     * as soon as it is found, e.g. to prune the search
+     * of the exact solver in a {@link com.galaev.tsp.solver.Portfolio}.
+     *
+     * @param graph input graph
+     * @param incumbent shared bounds
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    public Route process(Graph graph, Incumbent incumbent) {
+        Route route = start.process(graph);
+        if (route == null) {
+            return null;
+        }
+        incumbent.offer(route);
+        return improve(graph, route, incumbent);
+    }
+
+    /**
+     * Improves the given route of the graph.
+     * Graphs, that are too small for a window,
+     * are solved exactly instead. The route is not
+     * improved any more, when the thread is interrupted.
+     *
+     * @param graph input graph
+     * @param route route of the graph
+     * @return route, that is not worse than the given one
+     */
+    public Route improve(Graph graph, Route route) {
+        return improve(graph, route, null);
+    }
+
+    /**
+     * Improves the given route of the graph and offers
+     * each improved route to the incumbent.
+     *
+     * @param graph input graph
+     * @param route route of the graph
+     * @param incumbent shared bounds, or null
+     * @return route, that is not worse than the given one
+     * @see #improve(com.galaev.tsp.model.Graph, com.galaev.tsp.model.Route)
+     */
+    public Route improve(Graph graph, Route route, Incumbent incumbent) {
+        int size = graph.getSize();
+        if (size < window + 2) {
+            Route exact = Solver.getInstance().process(graph);
+            if (exact != null && incumbent != null) {
+                incumbent.offer(exact);
+            }
+            return exact == null ? route : exact;
+        }
+        int[] order = route.toArray();
+        long cost = route.getCost();
+        // Each pass shifts the windows by a node,
+        // stop, when all the shifts fail in a row
+        int[] firsts = new int[size / (window + 1)];
+        for (int pass = 0, failed = 0; failed <= window && ! Thread.currentThread().isInterrupted(); ++ pass) {
+            for (int k = 0; k < firsts.length; ++ k) {
+                firsts[k] = pass % (window + 1) + k * (window + 1);
+            }
+            long gain = solveWindows(graph, order, firsts);
+            cost -= gain;
+            failed = gain > 0 ? 0 : failed + 1;
+            if (gain > 0 && incumbent != null) {
+                incumbent.offer(toRoute(order, cost));
+            }
+        }
+        return toRoute(order, cost);
+    }
+
+    /**
+     * Creates the route, that starts at node 0.
+     *
+     * @param order nodes of the route in order
+     * @param cost cost of the route
+     * @return route of the nodes
+     */
+    private static Route toRoute(int[] order, long cost) {
+        int size = order.length;
+        int first = 0;
+        while (order[first] != 0) {
+            ++ first;
+        }
+        int[] rotated = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            rotated[i] = order[(first + i) % size];
+        }
+        return new Route(cost, rotated);
+    }
+
+    /**
+     * Improves the route around the given positions only,
+     * e.g. around seams of routes, that were found separately.
+     * Windows are shifted over each position, until none
+     * of the shifts improves the route, or until the thread is interrupted.
+     * Positions must be farther apart than two windows.
+     *
+     * @param graph input graph
+     * @param order nodes of the route in order, that are rearranged in place
+     * @param positions positions of the route to improve around
+     * @return decrease of the cost of the route
+     */
+    long repair(Graph graph, int[] order, int[] positions) {
+        int size = graph.getSize();
+        if (size < window + 2) {
+            return 0;
+        }
+        long total = 0;
+        int[] firsts = new int[positions.length];
+        for (int pass = 0, failed = 0; failed <= window && ! Thread.currentThread().isInterrupted(); ++ pass) {
+            for (int k = 0; k < positions.length; ++ k) {
+                firsts[k] = (positions[k] - pass % (window + 1) + 1 + size) % size;
+            }
+            long gain = solveWindows(graph, order, firsts);
+            total += gain;
+            failed = gain > 0 ? 0 : failed + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Solves the windows, that do not overlap, in parallel
+     * and splices cheaper paths into the route.
+     *
+     * @param graph input graph
+     * @param order nodes of the route in order, that are rearranged in place
+     * @param firsts positions of the first nodes of windows
+     * @return decrease of the cost of the route
+     */
+    private long solveWindows(Graph graph, int[] order, int[] firsts) {
+        int size = graph.getSize();
+        int count = firsts.length;
+        if (count == 0) {
+            return 0;
+        }
+        long[] gains = new long[count];
+        int[][] paths = new int[count][];
+        Windows windows = new Windows(graph, order, firsts, gains, paths, 0, count);
+        if (count == 1) {
+            windows.compute();
+        } else {
+            pool.invoke(windows);
+        }
+        long gain = 0;
+        for (int k = 0; k < count; ++ k) {
+            if (paths[k] != null) {
+                for (int i = 0; i < window; ++ i) {
+                    order[(firsts[k] + i) % size] = paths[k][i];
+                }
+                gain += gains[k];
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Finds the best path through the nodes of the window.
+     *
+     * @param graph input graph
+     * @param order nodes of the route, in order
+     * @param first position of the first node of the window
+     * @param gain array to put the gain of the path to
+     * @param k index of the window in the array of gains
+     * @return nodes of the path in order, or null,
+     *         if the path is not cheaper than the window
+     */
+    private int[] solveWindow(Graph graph, int[] order, int first, long[] gain, int k) {
+        int size = graph.getSize();
+        int before = order[(first + size - 1) % size];
+        int after = order[(first + window) % size];
+        int[] nodes = new int[window + 1];
+        long old = 0;
+        for (int i = 1; i <= window; ++ i) {
+            nodes[i] = order[(first + i - 1) % size];
+            old += graph.getCost(i == 1 ? before : nodes[i - 1], nodes[i]);
+        }
+        old += graph.getCost(nodes[window], after);
+        // Node 0 stands for the rest of the route
+        long[][] cells = new long[window + 1][window + 1];
+        List<Transition> required = new ArrayList<>();
+        for (int i = 0; i <= window; ++ i) {
+            for (int j = 0; j <= window; ++ j) {
+                int from = i == 0 ? before : nodes[i];
+                int to = j == 0 ? after : nodes[j];
+                cells[i][j] = i == j ? -1 : graph.getCost(from, to);
+                if (i != j && graph.isRequired(from, to)) {
+                    required.add(new Transition(i, j));
+                }
+            }
+        }
+        Route path = Solver.getInstance().process(new Instance(cells, required));
+        if (path == null || path.getCost() >= old) {
+            return null;
+        }
+        gain[k] = old - path.getCost();
+        int[] result = new int[window];
+        for (int i = 0; i < window; ++ i) {
+            result[i] = nodes[path.getNode(i + 1)];
+        }
+        return result;
+    }
+
+    /**
+     * Parallel task, that solves a range of windows of a pass.
+     */
+    private class Windows extends RecursiveAction {
+
+        /* Task parameters */
+        private final Graph graph;
+        private final int[] order;
+        private final int[] firsts;
+        private final long[] gains;
+        private final int[][] paths;
+        private final int from;
+        private final int to;
+
+        /**
+         * Package-private constructor.
+         */
+        Windows(Graph graph, int[] order, int[] firsts, long[] gains, int[][] paths, int from, int to) {
+            this.graph = graph;
+            this.order = order;
+            this.firsts = firsts;
+            this.gains = gains;
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Solves the window or splits the range in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                paths[from] = solveWindow(graph, order, firsts[from], gains, from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Windows(graph, order, firsts, gains, paths, from, middle),
+                      new Windows(graph, order, firsts, gains, paths, middle, to));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class {@code Portfolio} races the exact solver against heuristic
+ * engines on the same graph. All the engines run concurrently
+ * and share an {@link com.galaev.tsp.solver.Incumbent}: routes,
+ * that heuristics find, prune the search of the exact solver,
+ * and the lower bound, that the exact solver proves, tells,
+ * whether a route is within the target gap. Neighbourhood search
+ * offers each improved route at once, not only the last one.
+ * <p>
+ * The race is won by the exact solver, when it proves the best route,
+ * or by any engine, when the best route so far is accepted.
+ * Other engines are cancelled then. If no route is accepted,
+ * the best one is returned, when all the engines finish,
+ * or when the time budget is over.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.solver.Incumbent
+ */
+public class Portfolio implements Engine {
+
+    /** Threads for engines, that do not keep the application alive */
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "portfolio");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /* Heuristic engines */
+    private final List<Engine> heuristics;
+
+    /* Target gap, as a fraction of the lower bound */
+    private final double gap;
+
+    /* Time budget in milliseconds, or 0, if there is none */
+    private final long budget;
+
+    /**
+     * Public constructor.
+     * Only the best route is accepted, so heuristics
+     * just speed up the exact solver.
+     *
+     * @param heuristics heuristic engines
+     */
+    public Portfolio(Engine... heuristics) {
+        this(0, heuristics);
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param gap target gap, as a fraction of the lower bound
+     * @param heuristics heuristic engines
+     */
+    public Portfolio(double gap, Engine... heuristics) {
+        this(gap, 0, heuristics);
+    }
+
+    /**
+     * Public constructor.
+     * When the time budget is over, the best route
+     * found so far is returned, even if it is not accepted.
+     * If there is no route yet, the first one found is returned.
+     *
+     * @param gap target gap, as a fraction of the lower bound
+     * @param budget time budget in milliseconds, or 0, if there is none
+     * @param heuristics heuristic engines
+     */
+    public Portfolio(double gap, long budget, Engine... heuristics) {
+        if (gap < 0 || budget < 0) {
+            throw new IllegalArgumentException("Gap and budget must not be negative");
+        }
+        this.gap = gap;
+        this.budget = budget;
+        this.heuristics = new ArrayList<>(Arrays.asList(heuristics));
+    }
+
+    /**
+     * A method for processing the input graph.
+     * Engines, that fail on the graph, e.g. heuristics
+     * for symmetric graphs only, are left out of the race.
+     * If the calling thread is interrupted, all the engines
+     * are cancelled, and null is returned.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    @Override
+    public Route process(Graph graph) {
+        return process(graph, new Incumbent(gap));
+    }
+
+    /**
+     * A method for processing the input graph, that starts
+     * from the given bounds, e.g. a route of a previous solve.
+     * The gap of the incumbent is used instead of the gap of the portfolio.
+     *
+     * @param graph input graph
+     * @param incumbent shared bounds
+     * @return result route and its cost,
+     *         or null, if no route is found
+     * @see #process(com.galaev.tsp.model.Graph)
+     */
+    public Route process(final Graph graph, final Incumbent incumbent) {
+        CompletionService<Route> race = new ExecutorCompletionService<>(executor);
+        List<Future<Route>> runners = new ArrayList<>();
+        // Future of the exact solver goes first
+        runners.add(race.submit(new Callable<Route>() {
+            @Override
+            public Route call() {
+                return Solver.getInstance().process(graph, incumbent);
+            }
+        }));
+        for (final Engine engine : heuristics) {
+            runners.add(race.submit(new Callable<Route>() {
+                @Override
+                public Route call() {
+                    if (engine instanceof NeighbourhoodSearch) {
+                        return ((NeighbourhoodSearch) engine).process(graph, incumbent);
+                    }
+                    Route route = engine.process(graph);
+                    incumbent.offer(route);
+                    return route;
+                }
+            }));
+        }
+        long deadline = System.currentTimeMillis() + budget;
+        try {
+            for (int finished = 0; finished < runners.size(); ++ finished) {
+                Future<Route> runner;
+                if (budget == 0 || incumbent.getRoute() == null) {
+                    runner = race.take();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    runner = remaining > 0 ? race.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                    if (runner == null) { // the budget is over
+                        return incumbent.getRoute();
+                    }
+                }
+                Route route;
+                try {
+                    route = runner.get();
+                } catch (ExecutionException e) {
+                    continue;
+                }
+                // The exact solver, that is not interrupted, has the final answer
+                if (runner == runners.get(0) || incumbent.isAccepted()) {
+                    return route != null && route.getCost() <= incumbent.getUpper() ? route : incumbent.getRoute();
+                }
+            }
+            return incumbent.getRoute();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Future<Route> runner : runners) {
+                runner.cancel(true);
+            }
+        }
+    }
+}
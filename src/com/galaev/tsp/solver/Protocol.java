@@ -0,0 +1,175 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class {@code Protocol} defines messages, that the coordinator
+ * and workers exchange over sockets. A message is its type,
+ * followed by its fields. Subtrees of the search are sent
+ * as records of subproblems, the same as in checkpoints.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Coordinator
+ * @see com.galaev.tsp.solver.Worker
+ */
+final class Protocol {
+
+    /** Coordinator to worker: the instance of the next solve */
+    static final int GRAPH = 1;
+
+    /** Coordinator to worker: subproblems to explore */
+    static final int WORK = 2;
+
+    /** Coordinator to worker: cost of the best route found by anyone */
+    static final int BOUND = 3;
+
+    /** Coordinator to worker: give away a half of the waiting subproblems */
+    static final int SPLIT = 4;
+
+    /** Coordinator to worker: the solve is over */
+    static final int DONE = 5;
+
+    /** Coordinator to worker: the worker is not needed anymore */
+    static final int STOP = 6;
+
+    /** Worker to coordinator: a better route */
+    static final int ROUTE = 7;
+
+    /** Worker to coordinator: subproblems given away on request */
+    static final int DONATE = 8;
+
+    /** Worker to coordinator: all the received subproblems are explored */
+    static final int IDLE = 9;
+
+    /**
+     * Private default constructor.
+     * No one can instantiate Protocol.
+     */
+    private Protocol() { }
+
+    /**
+     * Writes the message and flushes the stream.
+     *
+     * @param out output stream
+     * @param message message to write
+     * @throws IOException if writing fails
+     */
+    static void write(ObjectOutputStream out, Message message) throws IOException {
+        out.writeInt(message.type);
+        switch (message.type) {
+            case GRAPH:
+                out.writeObject(message.graph);
+                break;
+            case WORK:
+            case DONATE:
+                out.writeInt(message.records.size());
+                for (Checkpoint.Record record : message.records) {
+                    out.writeLong(record.bound);
+                    out.writeObject(record.path);
+                    out.writeObject(record.excluded);
+                }
+                break;
+            case BOUND:
+            case IDLE:
+                out.writeLong(message.value);
+                break;
+            case ROUTE:
+                out.writeLong(message.value);
+                out.writeObject(message.nodes);
+                break;
+            default:
+                break;
+        }
+        // Arrays are not needed to be remembered by the stream
+        out.reset();
+        out.flush();
+    }
+
+    /**
+     * Reads the message.
+     *
+     * @param in input stream
+     * @param source index of the worker, that sent the message,
+     *               or -1, if it is the coordinator
+     * @return read message
+     * @throws IOException if reading fails
+     */
+    static Message read(ObjectInputStream in, int source) throws IOException {
+        try {
+            Message message = new Message(in.readInt(), source);
+            switch (message.type) {
+                case GRAPH:
+                    message.graph = (Graph) in.readObject();
+                    break;
+                case WORK:
+                case DONATE:
+                    int count = in.readInt();
+                    message.records = new ArrayList<>(count);
+                    for (int i = 0; i < count; ++ i) {
+                        long bound = in.readLong();
+                        int[] path = (int[]) in.readObject();
+                        int[] excluded = (int[]) in.readObject();
+                        message.records.add(new Checkpoint.Record(bound, path, excluded));
+                    }
+                    break;
+                case BOUND:
+                case IDLE:
+                    message.value = in.readLong();
+                    break;
+                case ROUTE:
+                    message.value = in.readLong();
+                    message.nodes = (int[]) in.readObject();
+                    break;
+                default:
+                    break;
+            }
+            return message;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Broken message", e);
+        }
+    }
+
+    /**
+     * Message of the protocol. Only the fields of its type are set.
+     */
+    static final class Message {
+
+        /* Type of the message */
+        final int type;
+
+        /* Index of the worker, that sent the message, or -1 */
+        final int source;
+
+        /* Instance of GRAPH */
+        Graph graph;
+
+        /* Subproblems of WORK and DONATE */
+        List<Checkpoint.Record> records;
+
+        /* Cost of BOUND and ROUTE, number of received WORK messages of IDLE */
+        long value;
+
+        /* Nodes of the route of ROUTE */
+        int[] nodes;
+
+        /* Error, that broke the connection, for the coordinator */
+        IOException error;
+
+        /**
+         * Package-private constructor.
+         *
+         * @param type type of the message
+         * @param source index of the worker, that sent the message, or -1
+         */
+        Message(int type, int source) {
+            this.type = type;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.galaev.tsp.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class {@code Reduction} provides the kernel, that
+ * subtracts minimums through rows and columns of
+ * a costs matrix, stored row by row in an integer array.
+ * Blocked cells contain {@code -1}. The matrix is expected
+ * to have the rows and the columns, that are out of play,
+ * blocked completely.
+ * <p>
+ * Loops of the kernel are branch-free and go through the memory
+ * sequentially, so they are vectorised by the JIT compiler:
+ * blocked cells are masked out by flipping the sign bit,
+ * which turns {@code -1} into the greatest value, and
+ * column minimums are collected row by row instead of
+ * walking through the columns. Large matrices are
+ * reduced in parallel by blocks of rows.
+ * Matrices of long integers, that are used for wide instances,
+ * are reduced the same way, but always by a single thread.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Subproblem
+ */
+final class Reduction {
+
+    /** Number of rows, starting from which the rows are reduced in parallel */
+    static final int PARALLEL_THRESHOLD = 256;
+
+    /** Number of rows in a block, that is reduced by a single thread */
+    private static final int BLOCK = 64;
+
+    /** Pool of threads for parallel reduction */
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    /**
+     * Private default constructor.
+     * No one can instantiate Reduction.
+     */
+    private Reduction() { }
+
+    /**
+     * Subtracts minimums through the given rows and columns
+     * and returns the sum of all subtracted minimums.
+     *
+     * @param costs costs matrix, row by row
+     * @param size number of columns in the matrix
+     * @param rows indices of rows in play
+     * @param rowCount number of rows in play
+     * @param cols indices of columns in play
+     * @param colCount number of columns in play
+     * @param colMin scratch buffer of {@code size} elements for minimums of columns
+     * @return sum of minimums, or {@code -1}, if some row or column
+     *         in play is blocked completely
+     */
+    static long reduce(int[] costs, int size,
+                       int[] rows, int rowCount, int[] cols, int colCount, int[] colMin) {
+        long total;
+        // Subtracting minimums through rows,
+        // collecting minimums of columns at the same time
+        if (rowCount < PARALLEL_THRESHOLD) {
+            total = reduceRows(costs, size, rows, 0, rowCount);
+            if (total < 0) {
+                return -1;
+            }
+            Arrays.fill(colMin, Integer.MAX_VALUE);
+            collectColumns(costs, size, rows, 0, rowCount, colMin);
+        } else {
+            RowBlock block = new RowBlock(costs, size, rows, 0, rowCount);
+            pool.invoke(block);
+            if (block.total < 0) {
+                return -1;
+            }
+            total = block.total;
+            colMin = block.colMin;
+        }
+        // Minimums of columns
+        long sum = 0;
+        for (int j = 0; j < size; ++ j) {
+            colMin[j] ^= Integer.MIN_VALUE; // blocked column gets -1
+        }
+        for (int k = 0; k < colCount; ++ k) {
+            if (colMin[cols[k]] == -1) { // the column is blocked completely
+                return -1;
+            }
+            sum += colMin[cols[k]];
+        }
+        // Subtracting minimums through columns
+        if (sum > 0) {
+            for (int j = 0; j < size; ++ j) {
+                colMin[j] &= ~ (colMin[j] >> 31); // nothing to subtract in blocked column
+            }
+            if (rowCount < PARALLEL_THRESHOLD) {
+                subtractColumns(costs, size, rows, 0, rowCount, colMin);
+            } else {
+                pool.invoke(new ColumnBlock(costs, size, rows, 0, rowCount, colMin));
+            }
+        }
+        return total + sum;
+    }
+
+    /**
+     * Subtracts minimums through the given rows and columns
+     * of the matrix of long integers and returns the sum
+     * of all subtracted minimums.
+     *
+     * @param costs costs matrix, row by row
+     * @param size number of columns in the matrix
+     * @param rows indices of rows in play
+     * @param rowCount number of rows in play
+     * @param cols indices of columns in play
+     * @param colCount number of columns in play
+     * @param colMin scratch buffer of {@code size} elements for minimums of columns
+     * @return sum of minimums, or {@code -1}, if some row or column
+     *         in play is blocked completely
+     */
+    static long reduce(long[] costs, int size,
+                       int[] rows, int rowCount, int[] cols, int colCount, long[] colMin) {
+        // Subtracting minimums through rows
+        long total = 0;
+        for (int k = 0; k < rowCount; ++ k) {
+            int base = rows[k] * size;
+            int end = base + size;
+            long min = Long.MAX_VALUE;
+            for (int j = base; j < end; ++ j) {
+                min = Math.min(min, costs[j] ^ Long.MIN_VALUE);
+            }
+            min ^= Long.MIN_VALUE;
+            if (min == -1) { // the row is blocked completely
+                return -1;
+            }
+            if (min > 0) {
+                for (int j = base; j < end; ++ j) {
+                    long value = costs[j];
+                    costs[j] = value - (min & ~ (value >> 63));
+                }
+                total += min;
+            }
+        }
+        // Minimums of columns
+        Arrays.fill(colMin, Long.MAX_VALUE);
+        for (int k = 0; k < rowCount; ++ k) {
+            int base = rows[k] * size;
+            for (int j = 0; j < size; ++ j) {
+                colMin[j] = Math.min(colMin[j], costs[base + j] ^ Long.MIN_VALUE);
+            }
+        }
+        long sum = 0;
+        for (int j = 0; j < size; ++ j) {
+            colMin[j] ^= Long.MIN_VALUE;
+        }
+        for (int k = 0; k < colCount; ++ k) {
+            if (colMin[cols[k]] == -1) { // the column is blocked completely
+                return -1;
+            }
+            sum += colMin[cols[k]];
+        }
+        // Subtracting minimums through columns
+        if (sum > 0) {
+            for (int j = 0; j < size; ++ j) {
+                colMin[j] &= ~ (colMin[j] >> 63);
+            }
+            for (int k = 0; k < rowCount; ++ k) {
+                int base = rows[k] * size;
+                for (int j = 0; j < size; ++ j) {
+                    long value = costs[base + j];
+                    costs[base + j] = value - (colMin[j] & ~ (value >> 63));
+                }
+            }
+        }
+        return total + sum;
+    }
+
+    /**
+     * Subtracts minimums through rows from {@code from} to {@code to}
+     * in the list of rows.
+     *
+     * @param costs costs matrix, row by row
+     * @param size number of columns in the matrix
+     * @param rows indices of rows
+     * @param from first position in the list of rows
+     * @param to position after the last one in the list of rows
+     * @return sum of minimums, or {@code -1}, if some row is blocked completely
+     */
+    private static long reduceRows(int[] costs, int size, int[] rows, int from, int to) {
+        long total = 0;
+        for (int k = from; k < to; ++ k) {
+            int base = rows[k] * size;
+            int end = base + size;
+            // find a minimum, blocked cells are the greatest
+            int min = Integer.MAX_VALUE;
+            for (int j = base; j < end; ++ j) {
+                min = Math.min(min, costs[j] ^ Integer.MIN_VALUE);
+            }
+            min ^= Integer.MIN_VALUE;
+            if (min == -1) { // the row is blocked completely
+                return -1;
+            }
+            // subtract a minimum, blocked cells stay blocked
+            if (min > 0) {
+                for (int j = base; j < end; ++ j) {
+                    int value = costs[j];
+                    costs[j] = value - (min & ~ (value >> 31));
+                }
+                total += min;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Collects minimums of columns through rows from {@code from}
+     * to {@code to} in the list of rows. Minimums are collected
+     * with flipped sign bit, so blocked cells are the greatest.
+     *
+     * @param costs costs matrix, row by row
+     * @param size number of columns in the matrix
+     * @param rows indices of rows
+     * @param from first position in the list of rows
+     * @param to position after the last one in the list of rows
+     * @param colMin minimums of columns to update
+     */
+    private static void collectColumns(int[] costs, int size, int[] rows, int from, int to,
+                                       int[] colMin) {
+        for (int k = from; k < to; ++ k) {
+            int base = rows[k] * size;
+            for (int j = 0; j < size; ++ j) {
+                colMin[j] = Math.min(colMin[j], costs[base + j] ^ Integer.MIN_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Subtracts minimums of columns through rows from {@code from}
+     * to {@code to} in the list of rows.
+     *
+     * @param costs costs matrix, row by row
+     * @param size number of columns in the matrix
+     * @param rows indices of rows
+     * @param from first position in the list of rows
+     * @param to position after the last one in the list of rows
+     * @param colMin minimums of columns to subtract
+     */
+    private static void subtractColumns(int[] costs, int size, int[] rows, int from, int to,
+                                        int[] colMin) {
+        for (int k = from; k < to; ++ k) {
+            int base = rows[k] * size;
+            for (int j = 0; j < size; ++ j) {
+                int value = costs[base + j];
+                costs[base + j] = value - (colMin[j] & ~ (value >> 31));
+            }
+        }
+    }
+
+    /**
+     * Parallel task, that subtracts minimums through a block of rows
+     * and collects minimums of columns in this block.
+     */
+    private static class RowBlock extends RecursiveAction {
+
+        /* Task parameters */
+        private final int[] costs;
+        private final int size;
+        private final int[] rows;
+        private final int from;
+        private final int to;
+
+        /* Task results */
+        private long total;
+        private int[] colMin;
+
+        /**
+         * Package-private constructor.
+         */
+        RowBlock(int[] costs, int size, int[] rows, int from, int to) {
+            this.costs = costs;
+            this.size = size;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Reduces the block or splits it in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCK) {
+                total = reduceRows(costs, size, rows, from, to);
+                if (total >= 0) {
+                    colMin = new int[size];
+                    Arrays.fill(colMin, Integer.MAX_VALUE);
+                    collectColumns(costs, size, rows, from, to, colMin);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            RowBlock left = new RowBlock(costs, size, rows, from, middle);
+            RowBlock right = new RowBlock(costs, size, rows, middle, to);
+            invokeAll(left, right);
+            if (left.total < 0 || right.total < 0) {
+                total = -1;
+                return;
+            }
+            total = left.total + right.total;
+            colMin = left.colMin;
+            for (int j = 0; j < size; ++ j) {
+                colMin[j] = Math.min(colMin[j], right.colMin[j]);
+            }
+        }
+    }
+
+    /**
+     * Parallel task, that subtracts minimums of columns
+     * through a block of rows.
+     */
+    private static class ColumnBlock extends RecursiveAction {
+
+        /* Task parameters */
+        private final int[] costs;
+        private final int size;
+        private final int[] rows;
+        private final int from;
+        private final int to;
+        private final int[] colMin;
+
+        /**
+         * Package-private constructor.
+         */
+        ColumnBlock(int[] costs, int size, int[] rows, int from, int to, int[] colMin) {
+            this.costs = costs;
+            this.size = size;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.colMin = colMin;
+        }
+
+        /**
+         * Subtracts minimums in the block or splits it in two.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCK) {
+                subtractColumns(costs, size, rows, from, to, colMin);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ColumnBlock(costs, size, rows, from, middle, colMin),
+                      new ColumnBlock(costs, size, rows, middle, to, colMin));
+        }
+    }
+}
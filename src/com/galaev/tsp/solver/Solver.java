@@ -1,11 +1,16 @@
 package com.galaev.tsp.solver;
 
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Instance;
 import com.galaev.tsp.model.Matrix;
 import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * Class {@code Solver} provides
@@ -13,12 +18,24 @@ import java.util.List;
  * Travelling Salesman Problem.
  * Class instance processes a matrix
  * of costs of transitions between nodes.
+ * The solver has no state, so it may
+ * process several instances concurrently.
+ * Each route of a symmetric instance
+ * is explored in one direction only.
+ * Bounds may be shared with heuristic engines,
+ * that run concurrently, see {@link com.galaev.tsp.solver.Incumbent}.
+ * The memory of the search is kept within a budget,
+ * see {@link com.galaev.tsp.solver.Governor}.
  *
  * @author Anton Galaev
- * @see com.galaev.tsp.model.Matrix
- * @see com.galaev.tsp.model.Cell
+ * @see com.galaev.tsp.model.Graph
+ * @see com.galaev.tsp.solver.Subproblem
+ * @see com.galaev.tsp.solver.Engine
  */
-public class Solver {
+public class Solver implements Engine {
+
+    /** Number of explored subproblems between checks of the monitor, less one */
+    private static final long MONITOR_MASK = 1023;
 
     /* The only instance of Solver */
     private static final Solver instance = new Solver();
@@ -40,131 +57,594 @@ public class Solver {
 
     /**
      * A method for processing the input matrix.
-     * Implements Branch & Bound algorithm to solve
-     * the Travelling Salesman Problem.
+     * The matrix itself is not changed, the solver
+     * works with a snapshot of it.
      *
      * @param mx input matrix
      * @return result route and its cost
+     * @see #process(com.galaev.tsp.model.Graph)
      */
     public Route process(Matrix mx) {
+        return process(new Instance(mx));
+    }
 
-        // List of possible solutions to choose from.
-        List<Matrix> waiting = new ArrayList<>();
+    /**
+     * A method for processing the input instance.
+     * Implements Branch & Bound algorithm to solve
+     * the Travelling Salesman Problem.
+     * All the search is performed in subproblems, that are
+     * private to this call, so the instance may be shared
+     * between concurrent solves.
+     *
+     * @param instance input instance
+     * @return result route and its cost
+     */
+    @Override
+    public Route process(Graph instance) {
+        return process(instance, new Incumbent());
+    }
 
-        while (true) { // repeat until the solution is found
-            if (mx.getSize() == 1) { // matrix is processed
-                if (mx.getCell(0).getValue() == -1) { // bad matrix, no solution
-                    mx.setCost(Integer.MAX_VALUE);
-                }
-                else { // solution is found
-                    mx.addTransition(mx.getCell(0).getFrom(), mx.getCell(0).getTo());
-                    return new Route(mx.getCost(), mx.getTransitions());
-                }
-            }
-            // Find minimum cost in waiting list
-            Matrix minMx;
-            if (waiting.isEmpty()) {
-                minMx = mx;
-            } else {
-                minMx = Collections.min(waiting);
-            }
-            // If current matrix is not the best,
-            // add it to the waiting list
-            if (minMx.getCost() < mx.getCost()) {
-                waiting.add(mx);
-                mx = minMx;
-            }
-            // No solution at all
-            if (mx.getCost() == Integer.MAX_VALUE) {
+    /**
+     * A method for processing the input instance,
+     * that shares bounds with other engines.
+     * Subproblems, that cannot beat the best route
+     * of the incumbent, are pruned, and the bound of the best
+     * waiting subproblem is published as the lower bound.
+     * The search stops, when the route of the incumbent is accepted,
+     * or when the thread is interrupted.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @return result route and its cost, the route of the incumbent,
+     *         if it is accepted, or null, if the search is interrupted
+     */
+    public Route process(Graph instance, Incumbent incumbent) {
+        return process(instance, incumbent, null);
+    }
+
+    /**
+     * A method for processing the input instance,
+     * that saves the state of the search to the checkpoint
+     * from time to time and when the thread is interrupted.
+     * If the checkpoint exists, the search is resumed from it.
+     * The checkpoint is deleted, when the search is over.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param checkpoint checkpoint or null, if the state is not saved
+     * @return result route and its cost, the route of the incumbent,
+     *         if it is accepted, or null, if the search is interrupted
+     * @throws IllegalStateException if the checkpoint cannot be read,
+     *         or it belongs to another instance
+     */
+    public Route process(Graph instance, Incumbent incumbent, Checkpoint checkpoint) {
+        return process(instance, incumbent, checkpoint, new Governor());
+    }
+
+    /**
+     * A method for processing the input instance,
+     * that keeps the memory of the search within the budget
+     * of the governor. The search degrades, when the budget nears,
+     * and if it is stopped, the route of the incumbent is returned,
+     * and the checkpoint is kept, so the search may be resumed
+     * with more memory.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param checkpoint checkpoint or null, if the state is not saved
+     * @param governor governor or null, if the memory is not limited
+     * @return result route and its cost, the route of the incumbent,
+     *         if it is accepted or the search is stopped by the governor,
+     *         or null, if the search is interrupted
+     * @throws IllegalStateException if the checkpoint cannot be read,
+     *         or it belongs to another instance
+     */
+    public Route process(Graph instance, Incumbent incumbent, Checkpoint checkpoint, Governor governor) {
+        Route route = search(instance, incumbent, checkpoint, governor);
+        if (checkpoint != null && ! Thread.currentThread().isInterrupted()
+                && (governor == null || governor.getLevel() != Governor.STOPPED)) {
+            checkpoint.delete();
+        }
+        return route;
+    }
+
+    /**
+     * Performs the search of the Branch & Bound algorithm.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param checkpoint checkpoint or null
+     * @param governor governor or null
+     * @return result route and its cost
+     */
+    private Route search(Graph instance, Incumbent incumbent, Checkpoint checkpoint, Governor governor) {
+
+        // Queue of possible solutions to choose from.
+        PriorityQueue<Subproblem> waiting = new PriorityQueue<>();
+        // Subproblems to reuse
+        SubproblemPool pool = new SubproblemPool(instance.getSize(), instance.isWide());
+        // Routes of a symmetric instance are the same in both directions
+        boolean symmetric = instance.isSymmetric() && instance.getRequired().isEmpty();
+        // Counters of the search, including the previous runs
+        long explored = 0;
+        long elapsed = 0;
+        long fingerprint = 0;
+        if (governor != null) {
+            governor.start(instance);
+        }
+        // Current subproblem
+        Subproblem mx;
+        if (checkpoint != null && checkpoint.exists()) {
+            Checkpoint.State state = checkpoint.load(instance);
+            fingerprint = state.fingerprint;
+            explored = state.explored;
+            elapsed = state.elapsed;
+            incumbent.offer(state.best);
+            for (Checkpoint.Record record : state.records) {
+                if (governor != null) {
+                    // Records are restored, when they are needed
+                    governor.freeze(record);
+                    continue;
+                }
+                Subproblem restored = restore(instance, record, pool, symmetric);
+                if (restored != null) {
+                    waiting.add(restored);
+                }
+            }
+            mx = nextBest(instance, pool, symmetric, waiting, governor);
+        } else {
+            if (checkpoint != null) {
+                fingerprint = Checkpoint.fingerprint(instance);
+            }
+            mx = new Subproblem(instance);
+            // Fix required transitions before the search
+            if (! fixRequired(mx, instance)) {
                 return null;
             }
-            // Current size
-            int s = mx.getSize();
-            // Subtracting minimums
-            // through rows:
-            for (int i = 0; i < s; ++ i) {
-                int min = Integer.MAX_VALUE;
-                // find a minimum
-                for (int j = 0; j < s; ++ j) {
-                    if (mx.getCell(i * s + j).getValue() == -1) {
-                        continue;
-                    }
-                    if (mx.getCell(i * s + j).getValue() < min) {
-                        min = mx.getCell(i * s + j).getValue();
-                    }
-                    if (min == 0) {
-                        break;
-                    }
-                }
-                // subtract a minimum
-                if (min > 0 && min != Integer.MAX_VALUE) {
-                    for (int j = 0; j < s; ++ j) {
-                        if (mx.getCell(i * s + j).getValue() == -1) {
-                            continue;
+        }
+
+        Monitor monitor = null;
+        if (checkpoint != null) {
+            monitor = checkpointMonitor(instance, incumbent, checkpoint, governor, fingerprint,
+                    elapsed - System.currentTimeMillis());
+        }
+        return explore(instance, incumbent, pool, symmetric, mx, waiting, monitor, governor, explored);
+    }
+
+    /**
+     * Explores the subproblems best first, until the best route
+     * is found, or no subproblem can beat the incumbent.
+     * When the governor asks for it, the search goes on depth first:
+     * each waiting subproblem is explored completely, before the next
+     * one is taken, so the best route is proven, when no waiting
+     * subproblem can beat the incumbent.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param pool pool of subproblems
+     * @param symmetric whether routes are explored in one direction only
+     * @param mx current subproblem, or null
+     * @param waiting waiting subproblems
+     * @param monitor monitor of the search, or null
+     * @param governor governor of the search, or null
+     * @param explored number of subproblems explored before
+     * @return result route and its cost, the route of the incumbent,
+     *         if no subproblem can beat it, or null, if the search is interrupted
+     */
+    Route explore(Graph instance, Incumbent incumbent, SubproblemPool pool, boolean symmetric,
+                  Subproblem mx, PriorityQueue<Subproblem> waiting, Monitor monitor,
+                  Governor governor, long explored) {
+        // Subproblems of the current dive, when depth first
+        Deque<Subproblem> deep = null;
+        // Bound of the subproblem, that the current dive started from
+        long floor = 0;
+        while (true) { // repeat until the solution is found
+            if (mx == null) {
+                if (deep == null) {
+                    mx = nextBest(instance, pool, symmetric, waiting, governor);
+                } else if ((mx = deep.poll()) == null) {
+                    // The dive is over, start the next one from the best subproblem
+                    mx = nextDive(instance, incumbent, pool, symmetric, waiting, governor);
+                    if (mx != null) {
+                        // A restored subproblem may have a higher bound,
+                        // than the next waiting one
+                        floor = mx.getBound();
+                        if (! waiting.isEmpty()) {
+                            floor = Math.min(floor, waiting.peek().getBound());
+                        }
+                        if (! governor.getCold().isEmpty()) {
+                            floor = Math.min(floor, governor.getCold().peek().bound);
                         }
-                        mx.decreaseCellValue(i * s + j, min);
                     }
-                    mx.setCost(mx.getCost() + min);
+                }
+                if (mx == null) {
+                    break;
                 }
             }
-            // Subtracting minimums
-            // through columns:
-            for (int i = 0; i < s; ++ i) {
-                int min = Integer.MAX_VALUE;
-                // find a minimum
-                for (int j = 0; j < s; ++ j) {
-                    if (mx.getCell(i + j * s).getValue() == -1) {
-                        continue;
-                    }
-                    if (mx.getCell(i + j * s).getValue() < min) {
-                        min = mx.getCell(i + j * s).getValue();
+            if (deep == null) {
+                // If current subproblem is not the best,
+                // add it to the waiting list
+                if (! waiting.isEmpty() && waiting.peek().getBound() < mx.getBound() || governor != null
+                        && ! governor.getCold().isEmpty() && governor.getCold().peek().bound < mx.getBound()) {
+                    waiting.add(mx);
+                    mx = nextBest(instance, pool, symmetric, waiting, governor);
+                }
+                // No waiting subproblem is better than the current one,
+                // so its bound is the lower bound of any route
+                floor = mx.getBound();
+            }
+            if (governor == null || governor.getLevel() != Governor.STOPPED) {
+                incumbent.raiseLower(floor);
+            }
+            if (incumbent.isAccepted()) {
+                return incumbent.getRoute();
+            }
+            if (mx.getBound() >= incumbent.getUpper()) {
+                if (deep == null) {
+                    return incumbent.getRoute();
+                }
+                pool.release(mx);
+                mx = null;
+                continue;
+            }
+            if ((++ explored & MONITOR_MASK) == 0) {
+                if (monitor != null) {
+                    monitor.check(explored, mx, waiting);
+                }
+                if (governor != null) {
+                    int level = governor.check(waiting, pool);
+                    if (level == Governor.STOPPED && incumbent.getRoute() != null) {
+                        return incumbent.getRoute();
                     }
-                    if (min == 0) {
-                        break;
+                    if (level >= Governor.DEPTH_FIRST && deep == null) {
+                        deep = governor.getDeep();
                     }
                 }
-                // subtract a minimum
-                if (min > 0 && min != Integer.MAX_VALUE) {
-                    for (int j = 0; j < s; ++ j) {
-                        if (mx.getCell(i + j * s).getValue() == -1) {
-                            continue;
-                        }
-                        mx.decreaseCellValue(i + j * s, min);
-                    }
-                    mx.setCost(mx.getCost() + min);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                if (monitor != null) {
+                    monitor.stop(explored, mx, waiting);
+                }
+                return null;
+            }
+            // Solution is found
+            if (mx.isComplete()) {
+                Route route = new Route(mx.getBound(), mx.getPath().toTransitions());
+                if (deep == null) {
+                    return route;
+                }
+                // Depth first, the route is not proven to be the best one
+                incumbent.offer(route);
+                if (governor.getLevel() == Governor.STOPPED) {
+                    return incumbent.getRoute();
+                }
+                pool.release(mx);
+                mx = null;
+                continue;
+            }
+            // Subtracting minimums through rows and columns
+            if (! mx.isReduced()) {
+                if (! mx.reduce(pool)) { // dead end
+                    pool.release(mx);
+                    mx = null;
                 }
+                continue;
             }
             // Now looking for a zero
             int f = mx.getCurrent();
             int t = mx.findNextNode();
-            if (t == -1) { // nowhere to go now with this matrix
-                mx.setCost(Integer.MAX_VALUE);
+            if (t == -1) { // nowhere to go now with this subproblem
+                pool.release(mx);
+                mx = null;
                 continue;
             }
-            // Memorize the alternative way (not going to 't'-node from 'f'-node)
-            Matrix alternative = new Matrix(mx);
-            alternative.blockCell(f, t);
-            waiting.add(alternative);
-            // Update the answer
-            mx.addTransition(f, t);
-            // Update the current node
-            mx.setCurrent(t);
-            // Block used cell (transition)
-            mx.blockCell(t, f);
-            // Update the size
-            mx.setSize(mx.getSize() - 1);
-            // If we still have a lot nodes to go,
-            // we can't go to the start point
-            if (mx.getSize() > 1) {
-                mx.blockCell(t, 0);
-            }
-            // Remove redundant row and column
-            for (int i = 0; i < mx.getListLength(); ++ i) {
-                if (mx.getCell(i).getFrom() == f || mx.getCell(i).getTo() == t) {
-                    mx.removeCell(i);
-                    -- i;
-                }
-            }
-        }
-    }
-}
\ No newline at end of file
+            // Memorize the alternative way (not going to 't'-node from 'f'-node),
+            // unless the transition is required, so there is no alternative
+            if (! instance.isRequired(f, t)) {
+                Subproblem alternative = pool.copy(mx);
+                alternative.exclude(f, t);
+                if (deep == null) {
+                    waiting.add(alternative);
+                } else {
+                    deep.push(alternative);
+                }
+            }
+            // Go to 't'-node
+            mx.moveTo(t);
+            // Leaving the start node, explore only the direction,
+            // in which the start node is entered from a greater node
+            if (symmetric && f == 0) {
+                for (int i = 1; i < t; ++ i) {
+                    mx.blockCell(i, 0);
+                }
+            }
+        }
+        // Nothing is left, that may beat the route found by another engine,
+        // unless the governor dropped subproblems, so it is the best one
+        if (incumbent.getRoute() != null && (governor == null || governor.getLevel() != Governor.STOPPED)) {
+            incumbent.raiseLower(incumbent.getUpper());
+        }
+        return incumbent.getRoute();
+    }
+
+    /**
+     * Takes the best waiting subproblem, when the search is best first.
+     * Compressed subproblems, e.g. the records of a resumed checkpoint,
+     * are restored only, when they are better than the waiting ones.
+     *
+     * @param instance input instance
+     * @param pool pool of subproblems
+     * @param symmetric whether routes are explored in one direction only
+     * @param waiting waiting subproblems
+     * @param governor governor of the search, or null
+     * @return best waiting subproblem, or null, if there is none
+     */
+    private Subproblem nextBest(Graph instance, SubproblemPool pool, boolean symmetric,
+                                PriorityQueue<Subproblem> waiting, Governor governor) {
+        if (governor == null) {
+            return waiting.poll();
+        }
+        PriorityQueue<Checkpoint.Record> cold = governor.getCold();
+        while (! cold.isEmpty() && (waiting.isEmpty() || cold.peek().bound < waiting.peek().getBound())) {
+            Subproblem restored = restore(instance, governor.thaw(), pool, symmetric);
+            if (restored != null) {
+                waiting.add(restored);
+            }
+        }
+        return waiting.poll();
+    }
+
+    /**
+     * Takes the best waiting subproblem, either a normal
+     * or a compressed one, to start the next dive from.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param pool pool of subproblems
+     * @param symmetric whether routes are explored in one direction only
+     * @param waiting waiting subproblems
+     * @param governor governor of the search
+     * @return best waiting subproblem, or null, if none can beat the incumbent
+     */
+    private Subproblem nextDive(Graph instance, Incumbent incumbent, SubproblemPool pool, boolean symmetric,
+                                PriorityQueue<Subproblem> waiting, Governor governor) {
+        PriorityQueue<Checkpoint.Record> cold = governor.getCold();
+        while (true) {
+            Subproblem best = waiting.peek();
+            Checkpoint.Record record = cold.peek();
+            if (best == null && record == null) {
+                return null;
+            }
+            if (record == null || best != null && best.getBound() <= record.bound) {
+                if (best.getBound() >= incumbent.getUpper()) {
+                    return null;
+                }
+                return waiting.poll();
+            }
+            if (record.bound >= incumbent.getUpper()) {
+                return null;
+            }
+            Subproblem restored = restore(instance, governor.thaw(), pool, symmetric);
+            if (restored != null) {
+                return restored;
+            }
+        }
+    }
+
+    /**
+     * Creates the monitor, that saves the state
+     * of the search to the checkpoint.
+     *
+     * @param instance input instance
+     * @param incumbent shared bounds
+     * @param checkpoint checkpoint
+     * @param governor governor or null
+     * @param fingerprint hash of the instance
+     * @param offset time of the previous runs less the start time of this one
+     * @return monitor of the search
+     */
+    private Monitor checkpointMonitor(final Graph instance, final Incumbent incumbent,
+                                      final Checkpoint checkpoint, final Governor governor,
+                                      final long fingerprint, final long offset) {
+        return new Monitor() {
+            @Override
+            public void check(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting) {
+                if (checkpoint.isDue() && isComplete()) {
+                    checkpoint.save(snapshot(instance, fingerprint, incumbent, explored,
+                            offset + System.currentTimeMillis(), mx, waiting, governor));
+                }
+            }
+
+            @Override
+            public void stop(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting) {
+                if (isComplete()) {
+                    checkpoint.saveNow(snapshot(instance, fingerprint, incumbent, explored,
+                            offset + System.currentTimeMillis(), mx, waiting, governor));
+                }
+            }
+
+            /**
+             * Subproblems are dropped, when the governor stops the search,
+             * so the last complete checkpoint is kept then.
+             */
+            private boolean isComplete() {
+                return governor == null || governor.getLevel() != Governor.STOPPED;
+            }
+        };
+    }
+
+    /**
+     * Collects the state of the search for the checkpoint.
+     * Subproblems are saved as chains of steps, so it is fast.
+     *
+     * @param instance input instance
+     * @param fingerprint hash of the instance
+     * @param incumbent shared bounds
+     * @param explored number of explored subproblems
+     * @param elapsed time of the search in milliseconds
+     * @param mx current subproblem
+     * @param waiting waiting subproblems
+     * @param governor governor, that keeps other subproblems, or null
+     * @return state of the search
+     */
+    private Checkpoint.State snapshot(Graph instance, long fingerprint, Incumbent incumbent,
+                                      long explored, long elapsed, Subproblem mx,
+                                      PriorityQueue<Subproblem> waiting, Governor governor) {
+        List<Checkpoint.Record> records = new ArrayList<>(waiting.size() + 1);
+        records.add(record(mx));
+        for (Subproblem subproblem : waiting) {
+            records.add(record(subproblem));
+        }
+        if (governor != null) {
+            for (Subproblem subproblem : governor.getDeep()) {
+                records.add(record(subproblem));
+            }
+            records.addAll(governor.getCold());
+        }
+        return new Checkpoint.State(instance.getSize(), fingerprint,
+                incumbent.getRoute(), explored, elapsed, records);
+    }
+
+    /**
+     * Saves the subproblem compactly.
+     *
+     * @param mx subproblem
+     * @return record of the subproblem
+     */
+    static Checkpoint.Record record(Subproblem mx) {
+        Step path = mx.getPath();
+        Step excluded = mx.getExcluded();
+        return new Checkpoint.Record(mx.getBound(),
+                path == null ? new int[0] : path.toPairs(),
+                excluded == null ? new int[0] : excluded.toPairs());
+    }
+
+    /**
+     * Restores the saved subproblem: excludes its transitions
+     * and replays its route on the root subproblem.
+     *
+     * @param instance input instance
+     * @param record record of the subproblem
+     * @param pool pool with scratch buffers
+     * @param symmetric whether routes are explored in one direction only
+     * @return restored subproblem, or null, if it has no solution
+     */
+    Subproblem restore(Graph instance, Checkpoint.Record record,
+                       SubproblemPool pool, boolean symmetric) {
+        Subproblem mx = new Subproblem(instance);
+        if (! fixRequired(mx, instance)) {
+            return null;
+        }
+        for (int i = 0; i < record.excluded.length; i += 2) {
+            mx.exclude(record.excluded[i], record.excluded[i + 1]);
+        }
+        for (int i = 0; i < record.path.length; i += 2) {
+            int f = record.path[i];
+            int t = record.path[i + 1];
+            if (! mx.replay(t, pool)) {
+                return null;
+            }
+            if (symmetric && f == 0) {
+                for (int j = 1; j < t; ++ j) {
+                    mx.blockCell(j, 0);
+                }
+            }
+        }
+        mx.raiseBound(record.bound);
+        return mx;
+    }
+
+    /**
+     * Fixes required transitions of the matrix before the search.
+     * Each required transition becomes the only available one
+     * in its row and in its column. Besides, the transition, that closes
+     * a chain of required transitions too early, is blocked,
+     * so the chain is contracted to a single transition in fact.
+     *
+     * @param mx root subproblem
+     * @param instance input instance
+     * @return false, if required transitions contradict each other,
+     *         true otherwise
+     */
+    boolean fixRequired(Subproblem mx, Graph instance) {
+        int size = instance.getSize();
+        int[] next = new int[size];
+        int[] prev = new int[size];
+        Arrays.fill(next, -1);
+        Arrays.fill(prev, -1);
+        for (Transition transition : instance.getRequired()) {
+            int f = transition.getFrom();
+            int t = transition.getTo();
+            if (f == t || next[f] != -1 || prev[t] != -1) { // contradiction
+                return false;
+            }
+            next[f] = t;
+            prev[t] = f;
+            // Block all other ways out of 'f' and into 't'
+            for (int i = 0; i < size; ++ i) {
+                if (i != t) {
+                    mx.blockCell(f, i);
+                }
+                if (i != f) {
+                    mx.blockCell(i, t);
+                }
+            }
+        }
+        // Block closing of every chain into a short cycle
+        for (int start = 0; start < size; ++ start) {
+            if (prev[start] != -1 || next[start] == -1) { // not a chain start
+                continue;
+            }
+            int end = start;
+            int length = 0;
+            while (next[end] != -1) {
+                end = next[end];
+                ++ length;
+            }
+            if (length < size - 1) {
+                mx.blockCell(end, start);
+            }
+        }
+        // Chains without a start are cycles
+        for (int node = 0; node < size; ++ node) {
+            if (next[node] != -1 && prev[node] != -1) {
+                int length = 1;
+                int end = next[node];
+                while (end != node && end != -1) {
+                    end = next[end];
+                    ++ length;
+                }
+                if (end == node && length < size) { // a short cycle
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Interface {@code Monitor} observes the search from time to time,
+     * e.g. to save its state or to share subproblems with other processes.
+     * It may add subproblems to the waiting ones or take them away.
+     */
+    interface Monitor {
+
+        /**
+         * Called from time to time during the search.
+         *
+         * @param explored number of explored subproblems
+         * @param mx current subproblem
+         * @param waiting waiting subproblems
+         */
+        void check(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting);
+
+        /**
+         * Called, when the search is interrupted.
+         *
+         * @param explored number of explored subproblems
+         * @param mx current subproblem
+         * @param waiting waiting subproblems
+         */
+        void stop(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting);
+    }
+}
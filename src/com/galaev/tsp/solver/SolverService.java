@@ -1,7 +1,10 @@
 package com.galaev.tsp.solver;
 
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Instance;
 import com.galaev.tsp.model.Matrix;
 import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.SparseInstance;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.concurrent.Service;
@@ -11,44 +14,103 @@ import javafx.concurrent.Task;
  * Class {@code SolverService} is a service, that
  * allows to perform tasks, that solve travelling salesman
  * problem. As it extends {@link javafx.concurrent.Service} tasks
- * are performed concurrently. A matrix must be set before starting
- * the service. Tasks return {@link com.galaev.tsp.model.Route} as
- * result.
+ * are performed concurrently. An instance (or a matrix) must be set
+ * before starting the service. Tasks return {@link com.galaev.tsp.model.Route} as
+ * result. The engine is chosen by the size and the structure of the instance,
+ * unless another engine is set, or the exact solver races heuristics in the portfolio mode.
  *
  * @author Anton Galaev
- * @see com.galaev.tsp.model.Matrix
+ * @see com.galaev.tsp.model.Graph
  * @see com.galaev.tsp.solver.Solver
+ * @see com.galaev.tsp.solver.Engine
+ * @see com.galaev.tsp.solver.EngineSelector
  */
 public class SolverService extends Service<Route> {
 
-    /* Private Matrix Property */
-    private ObjectProperty<Matrix> matrixProperty = new SimpleObjectProperty<>();
+    /* Private Instance Property */
+    private ObjectProperty<Graph> instanceProperty = new SimpleObjectProperty<>();
+
+    /* Private Engine Property, chosen by the instance by default */
+    private ObjectProperty<Engine> engineProperty = new SimpleObjectProperty<Engine>(new EngineSelector());
 
     /**
-     * Getter for the matrix.
+     * Getter for the instance.
      *
-     * @return a Matrix object
+     * @return a Graph object
      */
-    public Matrix getMatrix() {
-        return matrixProperty.get();
+    public Graph getInstance() {
+        return instanceProperty.get();
     }
 
     /**
-     * Setter for the matrix.
+     * Setter for the instance.
      *
-     * @param matrix a Matrix object
+     * @param instance a Graph object
      */
-    public void setMatrix(Matrix matrix) {
-        matrixProperty.set(matrix);
+    public void setInstance(Graph instance) {
+        instanceProperty.set(instance);
+    }
+
+    /**
+     * Getter for the instance property itself.
+     *
+     * @return the instance property
+     */
+    public ObjectProperty<Graph> instanceProperty() {
+        return instanceProperty;
+    }
+
+    /**
+     * Getter for the engine.
+     *
+     * @return an Engine object
+     */
+    public Engine getEngine() {
+        return engineProperty.get();
+    }
+
+    /**
+     * Setter for the engine.
+     *
+     * @param engine an Engine object
+     */
+    public void setEngine(Engine engine) {
+        engineProperty.set(engine);
+    }
+
+    /**
+     * Getter for the engine property itself.
+     *
+     * @return the engine property
+     */
+    public ObjectProperty<Engine> engineProperty() {
+        return engineProperty;
     }
 
     /**
-     * Getter for the matrix property itself.
+     * Switches the service to the portfolio mode: the exact solver
+     * races the given heuristics, and they share bounds.
+     * Cancelling the service cancels all the engines.
      *
-     * @return the matrix property
+     * @param gap target gap, as a fraction of the lower bound,
+     *            0 to accept only the best route
+     * @param heuristics heuristic engines
+     * @see com.galaev.tsp.solver.Portfolio
      */
-    public ObjectProperty<Matrix> matrixProperty() {
-        return matrixProperty;
+    public void setPortfolio(double gap, Engine... heuristics) {
+        setEngine(new Portfolio(gap, heuristics));
+    }
+
+    /**
+     * Setter for the matrix.
+     * The instance to solve becomes a snapshot of the matrix,
+     * so the matrix may be changed later safely.
+     * Matrices with few available transitions are stored sparse.
+     *
+     * @param matrix a Matrix object
+     */
+    public void setMatrix(Matrix matrix) {
+        setInstance(SparseInstance.isSparse(matrix) ? new SparseInstance(matrix) : new Instance(matrix));
     }
 
     /**
@@ -62,8 +124,7 @@ public class SolverService extends Service<Route> {
         return new Task<Route>() {
             @Override
             protected Route call() throws Exception {
-                Solver solver = Solver.getInstance();
-                return solver.process(getMatrix());
+                return getEngine().process(getInstance());
             }
         };
     }
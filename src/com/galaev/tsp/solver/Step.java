@@ -0,0 +1,110 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Transition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class {@code Step} represents a transition, performed
+ * in a subproblem, linked to the previous one.
+ * Steps are immutable, so the route built so far
+ * is shared between a subproblem and all its alternatives,
+ * and it is turned into a list of transitions only
+ * when the solution is found. Chains of steps also keep
+ * the transitions, that were excluded from a subproblem.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Subproblem
+ */
+final class Step {
+
+    /* Start node */
+    private final int from;
+
+    /* End node */
+    private final int to;
+
+    /* Previous step or null for the first one */
+    private final Step previous;
+
+    /* Number of steps in the chain */
+    private final int length;
+
+    /**
+     * Package-private constructor.
+     *
+     * @param from index of the start node
+     * @param to index of the end node
+     * @param previous previous step or {@code null}
+     */
+    Step(int from, int to, Step previous) {
+        this.from = from;
+        this.to = to;
+        this.previous = previous;
+        this.length = previous == null ? 1 : previous.length + 1;
+    }
+
+    /**
+     * Getter for the start node of the step.
+     *
+     * @return start node index
+     */
+    int getFrom() {
+        return from;
+    }
+
+    /**
+     * Getter for the end node of the step.
+     *
+     * @return end node index
+     */
+    int getTo() {
+        return to;
+    }
+
+    /**
+     * Getter for the previous step.
+     *
+     * @return previous step or {@code null} for the first one
+     */
+    Step getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Returns start and end nodes of all the steps of the chain
+     * up to this one as pairs in order of performing,
+     * e.g. to save them to a checkpoint.
+     *
+     * @return array of {@code from, to} pairs
+     */
+    int[] toPairs() {
+        int[] pairs = new int[2 * length];
+        int i = 2 * length;
+        for (Step step = this; step != null; step = step.previous) {
+            pairs[-- i] = step.to;
+            pairs[-- i] = step.from;
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns all the steps of the chain up to this one
+     * as a list of transitions in order of performing.
+     *
+     * @return list of transitions
+     */
+    List<Transition> toTransitions() {
+        Transition[] transitions = new Transition[length];
+        int i = length;
+        for (Step step = this; step != null; step = step.previous) {
+            transitions[-- i] = new Transition(step.from, step.to);
+        }
+        List<Transition> list = new ArrayList<>(length);
+        for (Transition transition : transitions) {
+            list.add(transition);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,436 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Class {@code Subproblem} represents a node of the
+ * branch & bound search tree. It is the mutable workspace
+ * of a single solve: reduced costs of transitions,
+ * the route built so far and its lower bound.
+ * Rows and columns are never removed from the costs array,
+ * instead the rows of the nodes, that were left, and the columns
+ * of the nodes, that were entered, are blocked completely.
+ * Costs of a wide instance are kept as long integers,
+ * costs of any other instance are kept as integers.
+ * Subproblems of a symmetric instance are also bounded
+ * by degrees of the nodes, see {@link #degreeBound(int[], int)}.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.model.Graph
+ * @see com.galaev.tsp.solver.Solver
+ */
+class Subproblem implements Comparable<Subproblem> {
+
+    /* The instance to solve */
+    private final Graph instance;
+
+    /* Number of nodes of the instance */
+    private final int size;
+
+    /* Reduced costs of transitions, row by row, or null for a wide instance */
+    private final int[] costs;
+
+    /* Reduced costs of transitions, row by row, for a wide instance */
+    private final long[] wideCosts;
+
+    /* Sum of reduced minimums, i.e. lower bound by reduction */
+    private long cost;
+
+    /* Lower bound of the cost of any route in this subproblem */
+    private long bound;
+
+    /* Cost of the route built so far */
+    private long pathCost;
+
+    /* Index of the current node */
+    private int current;
+
+    /* Whether the costs are reduced since the last change */
+    private boolean reduced;
+
+    /* The last performed transition, linked to the previous ones */
+    private Step path;
+
+    /* The last excluded transition, linked to the previous ones */
+    private Step excluded;
+
+    /* Unvisited nodes, except the start node, as a bit set */
+    private final long[] unvisited;
+
+    /* Number of unvisited nodes, except the start node */
+    private int left;
+
+    /**
+     * Package-private constructor.
+     * Creates the root subproblem of the given instance.
+     *
+     * @param instance instance to solve
+     */
+    Subproblem(Graph instance) {
+        this.instance = instance;
+        size = instance.getSize();
+        if (instance.isWide()) {
+            costs = null;
+            wideCosts = new long[size * size];
+            instance.copyCosts(wideCosts);
+        } else {
+            costs = new int[size * size];
+            wideCosts = null;
+            instance.copyCosts(costs);
+        }
+        unvisited = new long[(size + 63) >>> 6];
+        for (int i = 1; i < size; ++ i) {
+            unvisited[i >>> 6] |= 1L << i;
+        }
+        left = size - 1;
+    }
+
+    /**
+     * Package-private copy constructor.
+     *
+     * @param copy subproblem to copy
+     */
+    Subproblem(Subproblem copy) {
+        instance = copy.instance;
+        size = copy.size;
+        costs = copy.costs == null ? null : copy.costs.clone();
+        wideCosts = copy.wideCosts == null ? null : copy.wideCosts.clone();
+        cost = copy.cost;
+        bound = copy.bound;
+        pathCost = copy.pathCost;
+        current = copy.current;
+        reduced = copy.reduced;
+        path = copy.path;
+        excluded = copy.excluded;
+        unvisited = copy.unvisited.clone();
+        left = copy.left;
+    }
+
+    /**
+     * Makes this subproblem a copy of another one,
+     * reusing all its buffers.
+     *
+     * @param copy subproblem of the same instance to copy
+     */
+    void copyFrom(Subproblem copy) {
+        if (costs != null) {
+            System.arraycopy(copy.costs, 0, costs, 0, costs.length);
+        } else {
+            System.arraycopy(copy.wideCosts, 0, wideCosts, 0, wideCosts.length);
+        }
+        cost = copy.cost;
+        bound = copy.bound;
+        pathCost = copy.pathCost;
+        current = copy.current;
+        reduced = copy.reduced;
+        path = copy.path;
+        excluded = copy.excluded;
+        System.arraycopy(copy.unvisited, 0, unvisited, 0, unvisited.length);
+        left = copy.left;
+    }
+
+    /**
+     * Getter for the lower bound.
+     * When the route is complete, it is the cost of the route.
+     *
+     * @return lower bound of the route cost
+     */
+    long getBound() {
+        return bound;
+    }
+
+    /**
+     * Getter for index of the current node.
+     *
+     * @return index of the last visited node
+     */
+    int getCurrent() {
+        return current;
+    }
+
+    /**
+     * Getter for the route built so far.
+     *
+     * @return the last performed step or {@code null}
+     */
+    Step getPath() {
+        return path;
+    }
+
+    /**
+     * Getter for the transitions, excluded by branching.
+     *
+     * @return the last excluded transition or {@code null}
+     */
+    Step getExcluded() {
+        return excluded;
+    }
+
+    /**
+     * Checks, whether the costs are reduced.
+     *
+     * @return true, if nothing changed since the last reduction
+     */
+    boolean isReduced() {
+        return reduced;
+    }
+
+    /**
+     * Checks, whether the route is complete,
+     * i.e. it has returned to the start node.
+     *
+     * @return true, if the route is complete
+     */
+    boolean isComplete() {
+        return current == 0 && path != null;
+    }
+
+    /**
+     * Blocks the transition from the node with {@code from} index
+     * to the node with {@code to} index.
+     *
+     * @param from start node index
+     * @param to end node index
+     */
+    void blockCell(int from, int to) {
+        if (costs != null) {
+            costs[from * size + to] = -1;
+        } else {
+            wideCosts[from * size + to] = -1;
+        }
+        reduced = false;
+    }
+
+    /**
+     * Excludes the transition from the node with {@code from} index
+     * to the node with {@code to} index by branching. The transition
+     * is blocked and remembered, so the subproblem may be restored.
+     *
+     * @param from start node index
+     * @param to end node index
+     */
+    void exclude(int from, int to) {
+        excluded = new Step(from, to, excluded);
+        blockCell(from, to);
+    }
+
+    /**
+     * Raises the lower bound, e.g. to the bound,
+     * that was found before the subproblem was restored.
+     *
+     * @param value lower bound of the cost of any route in this subproblem
+     */
+    void raiseBound(long value) {
+        bound = Math.max(bound, value);
+    }
+
+    /**
+     * Subtracts minimums through rows and columns,
+     * that are still in play, and adds them to the lower bound.
+     *
+     * @param pool pool with scratch buffers
+     * @return false, if some row or column is blocked completely,
+     *         so there is no solution, true otherwise
+     * @see com.galaev.tsp.solver.Reduction
+     */
+    boolean reduce(SubproblemPool pool) {
+        int s = left + 1;
+        int[] rows = pool.getRows();
+        int[] cols = pool.getCols();
+        rows[0] = current;
+        cols[0] = 0;
+        int k = 1;
+        for (int w = 0; w < unvisited.length; ++ w) {
+            for (long word = unvisited[w]; word != 0; word &= word - 1) {
+                rows[k] = (w << 6) + Long.numberOfTrailingZeros(word);
+                cols[k] = rows[k];
+                ++ k;
+            }
+        }
+        long min = costs != null
+                ? Reduction.reduce(costs, size, rows, s, cols, s, pool.getColMin())
+                : Reduction.reduce(wideCosts, size, rows, s, cols, s, pool.getWideColMin());
+        if (min < 0) {
+            return false;
+        }
+        cost += min;
+        bound = Math.max(bound, cost);
+        if (instance.isSymmetric()) {
+            long degree = degreeBound(rows, s);
+            if (degree < 0) {
+                return false;
+            }
+            bound = Math.max(bound, degree);
+        }
+        reduced = true;
+        return true;
+    }
+
+    /**
+     * Computes the lower bound of a subproblem of a symmetric instance
+     * by degrees of the nodes. Every unvisited node is entered and left
+     * once more, the start node and the current node are left or entered
+     * once more, so the remaining route costs at least a half of the sum of
+     * the cheapest transitions of these nodes. Original costs are used,
+     * so the bound stays valid whatever cells are blocked.
+     *
+     * @param nodes the current node followed by unvisited nodes
+     * @param count number of nodes
+     * @return lower bound, or {@code -1}, if some node has not enough transitions
+     */
+    private long degreeBound(int[] nodes, int count) {
+        if (count == 1) { // only the way back is left
+            long last = instance.getCost(current, 0);
+            return last < 0 ? -1 : pathCost + last;
+        }
+        long sum = 0;
+        boolean started = path != null;
+        for (int k = 0; k < count; ++ k) {
+            int v = nodes[k];
+            boolean end = started && k == 0;
+            long min1 = Long.MAX_VALUE;
+            long min2 = Long.MAX_VALUE;
+            for (int l = 0; l <= count; ++ l) {
+                // the start node is a neighbour, unless it is the current one
+                int u = l < count ? nodes[l] : 0;
+                if (u == v || (l == count && ! started) || (end && l == count)) {
+                    continue;
+                }
+                long value = instance.getCost(v, u);
+                if (value < 0) {
+                    continue;
+                }
+                if (value < min1) {
+                    min2 = min1;
+                    min1 = value;
+                } else if (value < min2) {
+                    min2 = value;
+                }
+            }
+            if (min1 == Long.MAX_VALUE || (! end && min2 == Long.MAX_VALUE)) {
+                return -1;
+            }
+            sum += end ? min1 : min1 + min2;
+        }
+        if (started) { // the start node is left once more to an unvisited node
+            long min = Long.MAX_VALUE;
+            for (int k = 1; k < count; ++ k) {
+                long value = instance.getCost(0, nodes[k]);
+                if (value >= 0) {
+                    min = Math.min(min, value);
+                }
+            }
+            if (min == Long.MAX_VALUE) {
+                return -1;
+            }
+            sum += min;
+        }
+        return pathCost + (sum + 1) / 2;
+    }
+
+    /**
+     * Finds index of the next node to go to from the current node.
+     * Returns {@code -1}, if there are no available
+     * nodes to perform transition.
+     *
+     * @return index of the next node in the route
+     */
+    int findNextNode() {
+        int base = current * size;
+        if (left == 0) { // only the way back is left
+            return getReduced(base) == 0 ? 0 : -1;
+        }
+        for (int w = 0; w < unvisited.length; ++ w) {
+            for (long word = unvisited[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                if (getReduced(base + i) == 0) { // if we can go there
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Performs the transition from the current node
+     * to the node with {@code to} index.
+     *
+     * @param to end node index
+     */
+    void moveTo(int to) {
+        path = new Step(current, to, path);
+        pathCost += instance.getCost(current, to);
+        if (to != 0) { // cannot go there again
+            unvisited[to >>> 6] &= ~ (1L << to);
+            -- left;
+        }
+        // Take the row and the column out of play
+        if (costs != null) {
+            Arrays.fill(costs, current * size, (current + 1) * size, -1);
+            for (int i = to; i < costs.length; i += size) {
+                costs[i] = -1;
+            }
+        } else {
+            Arrays.fill(wideCosts, current * size, (current + 1) * size, -1);
+            for (int i = to; i < wideCosts.length; i += size) {
+                wideCosts[i] = -1;
+            }
+        }
+        // If we still have a lot nodes to go,
+        // we can't go to the start point
+        if (left > 0) {
+            blockCell(to, 0);
+        }
+        current = to;
+        reduced = false;
+    }
+
+    /**
+     * Performs the transition, that was performed before the subproblem
+     * was saved, to restore it. The costs are reduced first, unless they
+     * are reduced already, and the reduced cost of the transition is added
+     * to the lower bound, as the transition may be not the cheapest one now.
+     *
+     * @param to end node index
+     * @param pool pool with scratch buffers
+     * @return false, if the transition is not available, true otherwise
+     */
+    boolean replay(int to, SubproblemPool pool) {
+        if (! reduced && ! reduce(pool)) {
+            return false;
+        }
+        long value = getReduced(current * size + to);
+        if (value < 0) {
+            return false;
+        }
+        cost += value;
+        bound = Math.max(bound, cost);
+        moveTo(to);
+        return true;
+    }
+
+    /**
+     * Compares this subproblem to another by their lower bounds.
+     *
+     * @param o another subproblem
+     * @return negative, zero or positive, if this lower bound is
+     *         less, equal or greater than the other one
+     */
+    @Override
+    public int compareTo(Subproblem o) {
+        return Long.compare(this.bound, o.bound);
+    }
+
+    /**
+     * Returns the reduced cost of the cell
+     * with the given position in the costs array.
+     *
+     * @param index position of the cell
+     * @return reduced cost
+     */
+    private long getReduced(int index) {
+        return costs != null ? costs[index] : wideCosts[index];
+    }
+}
@@ -0,0 +1,124 @@
+package com.galaev.tsp.solver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Class {@code SubproblemPool} is the arena of a single solve.
+ * It keeps subproblems, that were pruned or expanded, so their
+ * buffers are reused by new subproblems instead of being
+ * allocated again, and scratch buffers for the reduction.
+ * A pool belongs to the thread, that performs the solve,
+ * so it is not synchronized.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Subproblem
+ */
+class SubproblemPool {
+
+    /* Free subproblems */
+    private final Deque<Subproblem> free = new ArrayDeque<>();
+
+    /* Scratch buffers for rows and columns in play */
+    private final int[] rows;
+    private final int[] cols;
+
+    /* Scratch buffers for minimums of columns */
+    private final int[] colMin;
+    private final long[] wideColMin;
+
+    /**
+     * Package-private constructor.
+     * Creates an empty pool for instances of the given size.
+     *
+     * @param size number of nodes of the instance
+     * @param wide whether costs of the instance are long integers
+     */
+    SubproblemPool(int size, boolean wide) {
+        rows = new int[size];
+        cols = new int[size];
+        colMin = wide ? null : new int[size];
+        wideColMin = wide ? new long[size] : null;
+    }
+
+    /**
+     * Returns a subproblem, that is a copy of the given one.
+     * A free subproblem is reused, if there is one.
+     *
+     * @param source subproblem to copy
+     * @return copy of the subproblem
+     */
+    Subproblem copy(Subproblem source) {
+        Subproblem copy = free.poll();
+        if (copy == null) {
+            return new Subproblem(source);
+        }
+        copy.copyFrom(source);
+        return copy;
+    }
+
+    /**
+     * Returns the subproblem to the pool.
+     * The subproblem must not be used after that.
+     *
+     * @param subproblem subproblem, that is not needed anymore
+     */
+    void release(Subproblem subproblem) {
+        if (subproblem != null) {
+            free.push(subproblem);
+        }
+    }
+
+    /**
+     * Getter for the number of free subproblems.
+     *
+     * @return number of subproblems kept for reuse
+     */
+    int getFree() {
+        return free.size();
+    }
+
+    /**
+     * Drops the free subproblems, so their memory is reclaimed.
+     */
+    void trim() {
+        free.clear();
+    }
+
+    /**
+     * Getter for scratch buffer for rows in play.
+     *
+     * @return scratch buffer for rows
+     */
+    int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter for scratch buffer for columns in play.
+     *
+     * @return scratch buffer for columns
+     */
+    int[] getCols() {
+        return cols;
+    }
+
+    /**
+     * Getter for scratch buffer for minimums of columns.
+     *
+     * @return scratch buffer for minimums of columns
+     */
+    int[] getColMin() {
+        return colMin;
+    }
+
+    /**
+     * Getter for scratch buffer for minimums of columns,
+     * when costs are long integers.
+     *
+     * @return scratch buffer for minimums of columns
+     */
+    long[] getWideColMin() {
+        return wideColMin;
+    }
+}
@@ -0,0 +1,239 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+import com.galaev.tsp.model.Transition;
+
+/**
+ * Class {@code WarmStart} solves an instance again after a few
+ * of its costs are changed, e.g. when a cell of the table is edited.
+ * It keeps the previous instance, its route and whether the route
+ * is proven to be the best one. The previous route is costed on the
+ * changed instance and becomes the initial incumbent of the solve,
+ * so the search prunes with it from the start.
+ * <p>
+ * The solve is skipped at all, when the changes cannot make another
+ * route better: costs of transitions of the route, that are decreased,
+ * and costs of other transitions, that are increased or blocked,
+ * keep the best route the best one.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.EngineSelector
+ * @see com.galaev.tsp.solver.Incumbent
+ */
+public class WarmStart implements Engine {
+
+    /* Engine, that solves the instance */
+    private final EngineSelector selector;
+
+    /* Previous instance */
+    private Graph previous;
+
+    /* Route of the previous instance */
+    private Route route;
+
+    /* Whether the route is proven to be the best one */
+    private boolean proven;
+
+    /* Proven lower bound of the cost of any route of the previous instance */
+    private long lower;
+
+    /* Whether the last solve was skipped */
+    private boolean reused;
+
+    /**
+     * Public constructor.
+     * Instances are solved by the default engine selector.
+     */
+    public WarmStart() {
+        this(new EngineSelector());
+    }
+
+    /**
+     * Public constructor.
+     *
+     * @param selector engine selector, that solves instances
+     */
+    public WarmStart(EngineSelector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Checks, whether the route of the last solve
+     * is proven to be the best one.
+     *
+     * @return true, if the route is the best one
+     */
+    public synchronized boolean isProven() {
+        return proven;
+    }
+
+    /**
+     * Returns the gap between the cost of the route of the last solve
+     * and the proven lower bound, as a fraction of the lower bound,
+     * e.g. when a heuristic or a time budget ended the solve.
+     *
+     * @return relative gap, 0 if the route is proven to be the best one,
+     *         or {@code Double.POSITIVE_INFINITY}, if nothing is proven
+     */
+    public synchronized double getGap() {
+        if (route == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long cost = route.getCost();
+        if (proven || cost <= lower) {
+            return 0;
+        }
+        return lower == 0 ? Double.POSITIVE_INFINITY : (double) (cost - lower) / lower;
+    }
+
+    /**
+     * Checks, whether the last solve proved, that the graph has
+     * no route at all, rather than a heuristic found none.
+     *
+     * @return true, if the graph has no route
+     */
+    public synchronized boolean isInfeasible() {
+        return previous != null && route == null && lower == Long.MAX_VALUE;
+    }
+
+    /**
+     * Checks, whether the last solve was skipped,
+     * because the changes could not affect the best route.
+     *
+     * @return true, if the previous route was returned as it is
+     */
+    public synchronized boolean isReused() {
+        return reused;
+    }
+
+    /**
+     * Forgets the previous instance, e.g. when another one is opened.
+     */
+    public synchronized void reset() {
+        previous = null;
+        route = null;
+        proven = false;
+        lower = 0;
+        reused = false;
+    }
+
+    /**
+     * A method for processing the input graph, that starts
+     * from the route of the previous graph, if it is still a route.
+     * The graph is remembered, unless the thread is interrupted.
+     *
+     * @param graph input graph
+     * @return result route and its cost,
+     *         or null, if no route is found
+     */
+    @Override
+    public synchronized Route process(Graph graph) {
+        reused = false;
+        Route old = recost(graph);
+        if (old != null && proven && isUnaffected(graph)) {
+            previous = graph;
+            route = old;
+            lower = old.getCost();
+            reused = true;
+            return old;
+        }
+        Incumbent incumbent = new Incumbent();
+        incumbent.offer(old);
+        Route result = selector.process(graph, incumbent);
+        if (Thread.currentThread().isInterrupted()) {
+            return result;
+        }
+        previous = graph;
+        route = result;
+        if (result != null && incumbent.getLower() < result.getCost()) {
+            // Heuristics prove nothing, the bound of the root reduction tells the gap
+            incumbent.raiseLower(Estimator.reductionBound(graph));
+        }
+        lower = incumbent.getLower();
+        proven = result != null && lower >= result.getCost();
+        return result;
+    }
+
+    /**
+     * Costs the previous route on the graph.
+     *
+     * @param graph input graph
+     * @return previous route with the new cost, or null, if there is no
+     *         previous route, or it is not a route of the graph anymore
+     */
+    private Route recost(Graph graph) {
+        if (route == null || previous.getSize() != graph.getSize()) {
+            return null;
+        }
+        int size = route.getSize();
+        long cost = 0;
+        for (int i = 0; i < size; ++ i) {
+            long value = graph.getCost(route.getNode(i), route.getNode(i + 1));
+            if (value < 0) {
+                return null;
+            }
+            cost += value;
+        }
+        int[] next = successors();
+        for (Transition transition : graph.getRequired()) {
+            if (next[transition.getFrom()] != transition.getTo()) {
+                return null;
+            }
+        }
+        return new Route(cost, route.toArray());
+    }
+
+    /**
+     * Checks, whether the changes of the graph keep the previous route
+     * the best one. A route, that does not use a decreased transition
+     * of the previous route, gains nothing over it, and a route, that uses
+     * it, gains no more, than the previous route. Other transitions must
+     * not get cheaper, and required transitions must not be released.
+     * The previous route satisfies the required transitions of the graph.
+     *
+     * @param graph input graph
+     * @return true, if the previous route is still the best one
+     */
+    private boolean isUnaffected(Graph graph) {
+        int size = graph.getSize();
+        int[] next = successors();
+        for (int i = 0; i < size; ++ i) {
+            for (int j = 0; j < size; ++ j) {
+                if (i == j) {
+                    continue;
+                }
+                if (previous.isRequired(i, j) && ! graph.isRequired(i, j)) {
+                    return false;
+                }
+                long before = infinite(previous.getCost(i, j));
+                long after = infinite(graph.getCost(i, j));
+                if (next[i] == j ? after > before : after < before) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next node of each node in the previous route.
+     *
+     * @return array of next nodes
+     */
+    private int[] successors() {
+        int size = route.getSize();
+        int[] next = new int[size];
+        for (int i = 0; i < size; ++ i) {
+            next[route.getNode(i)] = route.getNode(i + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Treats a blocked transition as an infinitely expensive one.
+     */
+    private static long infinite(long cost) {
+        return cost < 0 ? Long.MAX_VALUE : cost;
+    }
+}
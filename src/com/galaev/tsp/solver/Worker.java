@@ -0,0 +1,335 @@
+package com.galaev.tsp.solver;
+
+import com.galaev.tsp.model.Graph;
+import com.galaev.tsp.model.Route;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Class {@code Worker} is a process, that explores subtrees
+ * of the branch & bound search for a {@link com.galaev.tsp.solver.Coordinator}.
+ * It connects to the coordinator and serves one solve after another,
+ * until it is stopped. The subproblems, that it receives, are explored
+ * best first by the {@link com.galaev.tsp.solver.Solver}, and a half
+ * of the waiting ones is given away, when the coordinator asks for it.
+ * <p>
+ * Routes, that the worker finds, are reported to the coordinator,
+ * which shares their costs with other workers to prune their search.
+ *
+ * @author Anton Galaev
+ * @see com.galaev.tsp.solver.Coordinator
+ * @see com.galaev.tsp.solver.Protocol
+ */
+public final class Worker {
+
+    /* Connection to the coordinator */
+    private final ObjectOutputStream out;
+    private final ObjectInputStream in;
+
+    /* Messages from the coordinator, except for bounds */
+    private final BlockingQueue<Protocol.Message> inbox = new LinkedBlockingQueue<>();
+
+    /* Shared bounds of the current solve */
+    private volatile Incumbent incumbent;
+
+    /* Graph of the current solve */
+    private Graph graph;
+
+    /* Subproblems to reuse during the current solve */
+    private SubproblemPool pool;
+
+    /* Whether routes of the current graph are explored in one direction only */
+    private boolean symmetric;
+
+    /* Number of WORK messages received during the current solve */
+    private long received;
+
+    /**
+     * Private constructor.
+     *
+     * @param socket connection to the coordinator
+     * @throws IOException if the connection fails
+     */
+    private Worker(Socket socket) throws IOException {
+        out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.flush();
+        in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Starts the worker.
+     *
+     * @param args host and port of the coordinator
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: Worker <host> <port>");
+            System.exit(1);
+        }
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            new Worker(socket).run();
+        }
+    }
+
+    /**
+     * Serves solves, until the coordinator stops the worker,
+     * or the connection is lost.
+     *
+     * @throws IOException if the connection fails
+     */
+    private void run() throws IOException {
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "worker-reader");
+        reader.setDaemon(true);
+        reader.start();
+        while (true) {
+            Protocol.Message message;
+            try {
+                message = inbox.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            switch (message.type) {
+                case Protocol.GRAPH:
+                    graph = message.graph;
+                    pool = new SubproblemPool(graph.getSize(), graph.isWide());
+                    symmetric = graph.isSymmetric() && graph.getRequired().isEmpty();
+                    received = 0;
+                    break;
+                case Protocol.WORK:
+                    ++ received;
+                    if (! explore(message.records)) {
+                        break;
+                    }
+                    send(new Protocol.Message(Protocol.IDLE, -1), received);
+                    break;
+                case Protocol.SPLIT:
+                    send(new Protocol.Message(Protocol.DONATE, -1),
+                            Collections.<Checkpoint.Record>emptyList());
+                    break;
+                case Protocol.DONE:
+                    finish();
+                    break;
+                case Protocol.STOP:
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads messages from the coordinator. Bounds are applied at once,
+     * other messages are put to the inbox. The lost connection
+     * stops the worker.
+     */
+    private void receive() {
+        try {
+            while (true) {
+                Protocol.Message message = Protocol.read(in, -1);
+                if (message.type == Protocol.BOUND) {
+                    Incumbent current = incumbent;
+                    if (current != null) {
+                        current.tighten(message.value);
+                    }
+                    continue;
+                }
+                if (message.type == Protocol.GRAPH) {
+                    // Bounds, that follow the graph, belong to its solve
+                    incumbent = new Incumbent();
+                }
+                inbox.add(message);
+            }
+        } catch (IOException e) {
+            inbox.add(new Protocol.Message(Protocol.STOP, -1));
+        }
+    }
+
+    /**
+     * Explores the received subproblems and reports the best route found.
+     * Other messages are handled during the search from time to time.
+     *
+     * @param records received subproblems
+     * @return true, if the subproblems are explored,
+     *         or false, if the solve is over
+     * @throws IOException if the connection fails
+     */
+    private boolean explore(List<Checkpoint.Record> records) throws IOException {
+        renew();
+        PriorityQueue<Subproblem> waiting = new PriorityQueue<>();
+        add(records, waiting);
+        final boolean[] done = new boolean[1];
+        final IOException[] error = new IOException[1];
+        Solver.Monitor monitor = new Solver.Monitor() {
+            @Override
+            public void check(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting) {
+                try {
+                    poll(waiting, done);
+                } catch (IOException e) {
+                    error[0] = e;
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void stop(long explored, Subproblem mx, PriorityQueue<Subproblem> waiting) {
+            }
+        };
+        Route route = Solver.getInstance().explore(graph, incumbent, pool, symmetric,
+                waiting.poll(), waiting, monitor, null, 0);
+        // The search may be interrupted only by the monitor
+        Thread.interrupted();
+        if (error[0] != null) {
+            throw error[0];
+        }
+        if (done[0]) {
+            return false;
+        }
+        if (route != null && incumbent.offer(route)) {
+            Protocol.Message message = new Protocol.Message(Protocol.ROUTE, -1);
+            message.value = route.getCost();
+            message.nodes = route.toArray();
+            Protocol.write(out, message);
+        }
+        return true;
+    }
+
+    /**
+     * Handles the messages, that arrived during the search.
+     * Work is left in the inbox, it is never sent to a busy worker.
+     *
+     * @param waiting waiting subproblems
+     * @param done set, if the solve is over
+     * @throws IOException if the connection fails
+     */
+    private void poll(PriorityQueue<Subproblem> waiting, boolean[] done) throws IOException {
+        Protocol.Message message;
+        while ((message = inbox.peek()) != null) {
+            switch (message.type) {
+                case Protocol.SPLIT:
+                    inbox.poll();
+                    send(new Protocol.Message(Protocol.DONATE, -1), donate(waiting));
+                    break;
+                case Protocol.DONE:
+                    inbox.poll();
+                    finish();
+                    done[0] = true;
+                    Thread.currentThread().interrupt();
+                    return;
+                case Protocol.STOP:
+                    // Stop is handled out of the search
+                    Thread.currentThread().interrupt();
+                    return;
+                default:
+                    // Work is explored after the current search
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Takes away every other waiting subproblem, that may beat
+     * the best route, so both halves have good and bad ones.
+     *
+     * @param waiting waiting subproblems
+     * @return records of the given subproblems
+     */
+    private List<Checkpoint.Record> donate(PriorityQueue<Subproblem> waiting) {
+        List<Subproblem> sorted = new ArrayList<>(waiting.size());
+        while (! waiting.isEmpty()) {
+            sorted.add(waiting.poll());
+        }
+        List<Checkpoint.Record> records = new ArrayList<>(sorted.size() / 2);
+        long upper = incumbent.getUpper();
+        for (int i = 0; i < sorted.size(); ++ i) {
+            Subproblem subproblem = sorted.get(i);
+            if (subproblem.getBound() >= upper) {
+                pool.release(subproblem);
+            } else if (i % 2 == 0) {
+                records.add(Solver.record(subproblem));
+                pool.release(subproblem);
+            } else {
+                waiting.add(subproblem);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Restores the subproblems and adds them to the waiting ones.
+     *
+     * @param records records of the subproblems
+     * @param waiting waiting subproblems
+     */
+    private void add(List<Checkpoint.Record> records, PriorityQueue<Subproblem> waiting) {
+        long upper = incumbent.getUpper();
+        for (Checkpoint.Record record : records) {
+            if (record.bound >= upper) {
+                continue;
+            }
+            Subproblem restored = Solver.getInstance().restore(graph, record, pool, symmetric);
+            if (restored != null) {
+                waiting.add(restored);
+            }
+        }
+    }
+
+    /**
+     * Replaces the incumbent with a new one, that has the same best route
+     * and upper bound. The lower bound, that the solver raises, is proven
+     * only for the subtrees, that were explored, so it is not kept
+     * for the next ones. Bounds, that arrive meanwhile, are not lost,
+     * because the new incumbent is published first.
+     */
+    private void renew() {
+        Incumbent previous = incumbent;
+        Incumbent current = new Incumbent();
+        incumbent = current;
+        current.offer(previous.getRoute());
+        current.tighten(previous.getUpper());
+    }
+
+    /**
+     * Ends the current solve and acknowledges it.
+     *
+     * @throws IOException if the connection fails
+     */
+    private void finish() throws IOException {
+        graph = null;
+        pool = null;
+        send(new Protocol.Message(Protocol.IDLE, -1), -1);
+    }
+
+    /**
+     * Sends the message with the count.
+     */
+    private void send(Protocol.Message message, long value) throws IOException {
+        message.value = value;
+        Protocol.write(out, message);
+    }
+
+    /**
+     * Sends the message with the subproblems.
+     */
+    private void send(Protocol.Message message, List<Checkpoint.Record> records) throws IOException {
+        message.records = records;
+        Protocol.write(out, message);
+    }
+}